@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Class Name: com.blog.Application
@@ -15,6 +16,7 @@ import org.springframework.context.event.EventListener;
  * Version: 1.0
  */
 @SpringBootApplication
+@EnableScheduling
 public class Application {
     public static void main(String[] args) {
         System.out.println("=== APP STARTED AT " + System.currentTimeMillis() + " ===");
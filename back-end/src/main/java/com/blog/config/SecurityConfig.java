@@ -1,11 +1,13 @@
 package com.blog.config;
 
 import com.blog.security.JwtAuthenticationFilter;
+import com.blog.security.SecurityRoutes;
 import com.blog.service.CustomUserDetailsService;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -42,12 +44,15 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final CustomUserDetailsService customUserDetailsService;
     private final PasswordEncoder passwordEncoder;
+    private final SecurityRoutes securityRoutes;
 
     public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
-            CustomUserDetailsService customUserDetailsService, PasswordEncoder passwordEncoder) {
+            CustomUserDetailsService customUserDetailsService, PasswordEncoder passwordEncoder,
+            SecurityRoutes securityRoutes) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.customUserDetailsService = customUserDetailsService;
         this.passwordEncoder = passwordEncoder;
+        this.securityRoutes = securityRoutes;
     }
 
     @Bean
@@ -66,39 +71,10 @@ public class SecurityConfig {
                     auth
                             // 允許所有 OPTIONS 請求
                             .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                            // 公開端點
-                            .requestMatchers("/api/auth/**", "/api/users/login", "/api/users/register").permitAll()
-                            .requestMatchers(HttpMethod.GET, "/api/restaurants/**").permitAll()
-                            .requestMatchers(HttpMethod.GET, "/api/reviews/restaurant/**").permitAll()
-                            .requestMatchers("/api/debug/**").permitAll()
-                            .requestMatchers("/api/images/**").permitAll()
-
-                            // 添加新的需要 REVIEWER 角色的端點
-                            .requestMatchers(HttpMethod.GET, "/api/users/{userId}").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.GET, "/api/users/{userId}/favorites").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.GET, "/api/users/{userId}/reviews").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.GET, "/api/users/{userId}/restaurants").hasRole("REVIEWER")
-
-                            // 評論相關的端點
-                            .requestMatchers(HttpMethod.POST, "/api/reviews/restaurant/{restaurantId}")
-                            .hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.PUT, "/api/reviews/{reviewId}").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.POST, "/api/reviews/{reviewId}/like").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.DELETE, "/api/reviews/{reviewId}/like").hasRole("REVIEWER")
-
-                            // 需要 REVIEWER 或 ADMIN 的端點
-                            .requestMatchers(HttpMethod.DELETE, "/api/reviews/{reviewId}")
-                            .hasAnyRole("REVIEWER", "ADMIN")
-                            // 需要認證的端點
-                            .requestMatchers(HttpMethod.POST, "/api/restaurants").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.PUT, "/api/restaurants/{id}").hasRole("REVIEWER")
-                            .requestMatchers(HttpMethod.DELETE, "/api/restaurants/{id}").hasAnyRole("REVIEWER", "ADMIN")
-                            .requestMatchers(HttpMethod.POST, "/api/restaurants/*/favorite").hasAnyRole("REVIEWER")
-                            .requestMatchers(HttpMethod.DELETE, "/api/restaurants/*/favorite").hasAnyRole("REVIEWER")
-                            .requestMatchers(HttpMethod.GET, "/api/restaurants/favorites").hasAnyRole("REVIEWER")
-
-                            // 其他需要認證的請求
-                            .anyRequest().authenticated();
+                            // 其餘請求依 SecurityRoutes 路由表判斷（與 JwtAuthenticationFilter 共用同一份規則）
+                            .anyRequest().access((authentication, context) -> new AuthorizationDecision(
+                                    securityRoutes.isAllowed(securityRoutes.classify(context.getRequest()),
+                                            authentication.get())));
                 })
                 .authenticationProvider(authenticationProvider())
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
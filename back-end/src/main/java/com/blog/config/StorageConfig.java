@@ -0,0 +1,75 @@
+package com.blog.config;
+
+import com.blog.service.GcsStorageBackend;
+import com.blog.service.InMemoryStorageBackend;
+import com.blog.service.StorageBackend;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.cloud.http.HttpTransportOptions;
+import com.google.cloud.storage.HttpStorageOptions;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.threeten.bp.Duration;
+
+/**
+ * Class Name: StorageConfig
+ * Package: com.blog.config
+ * Description: 圖片儲存後端設定；storage.backend=gcs（預設）使用共用的 Cloud Storage 用戶端，memory 使用記憶體儲存
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Configuration
+public class StorageConfig {
+
+  // 整個應用程式共用一個 Storage 用戶端，只在啟動時解析一次認證並重複使用 HTTP 連線
+  @Bean
+  @ConditionalOnProperty(name = "storage.backend", havingValue = "gcs", matchIfMissing = true)
+  public Storage googleCloudStorage(
+      @Value("${GOOGLE_CLOUD_PROJECT}") String projectId,
+      @Value("${storage.gcs.connect-timeout-ms:5000}") int connectTimeoutMillis,
+      @Value("${storage.gcs.read-timeout-ms:20000}") int readTimeoutMillis,
+      @Value("${storage.gcs.max-attempts:4}") int maxAttempts,
+      @Value("${storage.gcs.total-timeout-ms:30000}") long totalTimeoutMillis,
+      @Value("${storage.gcs.max-connections:20}") int maxConnections) {
+    // 用戶端自己的 Apache 連線池，連線數只影響這個用戶端，不必修改 JVM 全域的 http.maxConnections；
+    // 工廠每次回傳同一個傳輸層，所有請求共用同一個連線池
+    ApacheHttpTransport httpTransport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+        .setMaxConnTotal(maxConnections)
+        .setMaxConnPerRoute(maxConnections)
+        .build());
+
+    RetrySettings retrySettings = StorageOptions.getDefaultRetrySettings().toBuilder()
+        .setMaxAttempts(maxAttempts)
+        .setTotalTimeout(Duration.ofMillis(totalTimeoutMillis))
+        .build();
+    HttpTransportOptions transportOptions = HttpStorageOptions.defaults().getDefaultTransportOptions().toBuilder()
+        .setHttpTransportFactory(() -> httpTransport)
+        .setConnectTimeout(connectTimeoutMillis)
+        .setReadTimeout(readTimeoutMillis)
+        .build();
+
+    return StorageOptions.newBuilder()
+        .setProjectId(projectId)
+        .setRetrySettings(retrySettings)
+        .setTransportOptions(transportOptions)
+        .build()
+        .getService();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "storage.backend", havingValue = "gcs", matchIfMissing = true)
+  public StorageBackend gcsStorageBackend(Storage storage, @Value("${BUCKET_NAME}") String bucketName) {
+    return new GcsStorageBackend(storage, bucketName);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "storage.backend", havingValue = "memory")
+  public StorageBackend inMemoryStorageBackend() {
+    return new InMemoryStorageBackend();
+  }
+}
@@ -2,37 +2,62 @@ package com.blog.controller;
 
 import com.blog.service.ImageService;
 import com.blog.service.CloudStorageService;
+import com.blog.service.DiskImageCache;
+import com.blog.service.StoredObject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
-import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
 public class FileController {
   private static final Logger logger = LoggerFactory.getLogger(FileController.class);
 
+  // Tomcat sendfile 的請求屬性
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  // 圖片檔名不會重複使用，可讓瀏覽器與 CDN 快取一年且不必重新驗證
+  private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+      .cachePublic()
+      .immutable();
+
   @Autowired
   private ImageService imageService;
 
   @Autowired
   private CloudStorageService cloudStorageService;
 
-  @Value("${GOOGLE_CLOUD_PROJECT}")
-  private String projectId;
-
-  @Value("${BUCKET_NAME}")
-  private String bucketName;
-
   @PostMapping("/upload")
   public ResponseEntity<String> uploadImage(@RequestParam("file") MultipartFile file) throws IOException {
     String imageUrl = imageService.uploadImage(file);
@@ -45,38 +70,154 @@ public class FileController {
     return ResponseEntity.ok().build();
   }
 
+  // 圖片代理：以固定大小的緩衝區由儲存後端串流輸出，不把整張圖片讀進記憶體；
+  // 支援 ETag / Last-Modified 條件請求（304）與單一範圍的 Range 請求（206）
   @GetMapping("/{fileName}")
-  public ResponseEntity<byte[]> getImage(@PathVariable String fileName) {
-    logger.info("=== FileController.getImage called with fileName: {} ===", fileName);
+  public void getImage(@PathVariable String fileName, ServletWebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+    DiskImageCache.CachedImage cached;
     try {
-      logger.info("Attempting to get image: {}", fileName);
-      logger.info("Project ID: {}, Bucket: {}", projectId, bucketName);
-
-      Storage storage = StorageOptions.newBuilder()
-          .setProjectId(projectId)
-          .build()
-          .getService();
-
-      BlobId blobId = BlobId.of(bucketName, fileName);
-      logger.info("Looking for blob: {}", blobId);
-
-      byte[] content = storage.readAllBytes(blobId);
-      logger.info("Successfully read image, size: {} bytes", content.length);
-
-      // 根據檔案名稱判斷圖片類型
-      MediaType mediaType = MediaType.IMAGE_JPEG;
-      if (fileName.toLowerCase().endsWith(".png")) {
-        mediaType = MediaType.IMAGE_PNG;
-      } else if (fileName.toLowerCase().endsWith(".gif")) {
-        mediaType = MediaType.IMAGE_GIF;
-      }
-
-      return ResponseEntity.ok()
-          .contentType(mediaType)
-          .body(content);
+      cached = cloudStorageService.lookupImage(fileName);
     } catch (Exception e) {
       logger.error("Error getting image: {}", fileName, e);
-      return ResponseEntity.notFound().build();
+      response.setStatus(HttpStatus.NOT_FOUND.value());
+      return;
+    }
+    if (cached == null) {
+      logger.info("Image not found: {}", fileName);
+      response.setStatus(HttpStatus.NOT_FOUND.value());
+      return;
+    }
+    StoredObject image = cached.info();
+
+    // 檔名含 UUID，同名檔案內容不會改變，瀏覽器可長期快取
+    String etag = "\"" + image.etag() + "\"";
+    response.setHeader(HttpHeaders.ETAG, etag);
+    if (image.lastModified() > 0) {
+      response.setDateHeader(HttpHeaders.LAST_MODIFIED, image.lastModified());
+    }
+    response.setHeader(HttpHeaders.CACHE_CONTROL, IMAGE_CACHE_CONTROL.getHeaderValue());
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (webRequest.checkNotModified(etag, image.lastModified())) {
+      return;
+    }
+
+    long size = image.size();
+    long start = 0;
+    long end = size - 1;
+    HttpServletRequest request = webRequest.getRequest();
+    String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+    if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, image.lastModified())) {
+      HttpRange range = parseSingleRange(rangeHeader);
+      if (range != null) {
+        start = range.getRangeStart(size);
+        if (start >= size) {
+          response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+          response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+          return;
+        }
+        end = range.getRangeEnd(size);
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+      }
+    }
+
+    long length = Math.max(0, end - start + 1);
+    response.setContentType(resolveMediaType(image).toString());
+    response.setContentLengthLong(length);
+    if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+      return;
+    }
+    if (cached.file() != null) {
+      sendFile(request, response, cached.file(), start, length);
+    } else {
+      try (InputStream in = cloudStorageService.openImage(fileName, start, length)) {
+        StreamUtils.copy(in, response.getOutputStream());
+      }
+    }
+    cloudStorageService.recordImageBytesServed(length, cached.file() != null);
+  }
+
+  // 圖片磁碟快取統計（命中率、送出位元組數、淘汰次數）
+  @GetMapping("/cache-stats")
+  @PreAuthorize("hasRole('ADMIN')")
+  public Map<String, Object> getImageCacheStats() {
+    return cloudStorageService.getImageCacheStats();
+  }
+
+  // 縮圖產生統計
+  @GetMapping("/variant-stats")
+  @PreAuthorize("hasRole('ADMIN')")
+  public Map<String, Object> getImageVariantStats() {
+    return imageService.getVariantStats();
+  }
+
+  // 由本機快取檔送出：Tomcat 支援 sendfile 時交給它以零拷貝直接寫入 socket，
+  // 否則以 FileChannel.transferTo 寫入回應串流
+  private static void sendFile(HttpServletRequest request, HttpServletResponse response, Path file,
+      long start, long length) throws IOException {
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, start + length);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      long remaining = length;
+      while (remaining > 0) {
+        long written = channel.transferTo(position, remaining, out);
+        if (written <= 0) {
+          break;
+        }
+        position += written;
+        remaining -= written;
+      }
+    }
+  }
+
+  // 只處理單一範圍；格式錯誤或多重範圍時忽略 Range，回傳完整內容
+  private static HttpRange parseSingleRange(String rangeHeader) {
+    try {
+      List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+      return ranges.size() == 1 ? ranges.get(0) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // If-Range 與目前的 ETag 或最後修改時間相符時，Range 才有效
+  private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"")) {
+      return ifRange.equals(etag);
+    }
+    try {
+      long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+      return date / 1000 == lastModified / 1000;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  // 優先使用上傳時記錄的類型，否則根據檔案名稱判斷圖片類型
+  private static MediaType resolveMediaType(StoredObject image) {
+    if (image.contentType() != null) {
+      try {
+        return MediaType.parseMediaType(image.contentType());
+      } catch (InvalidMediaTypeException e) {
+        // 類型格式錯誤時改用副檔名判斷
+      }
+    }
+    String name = image.name().toLowerCase();
+    if (name.endsWith(".png")) {
+      return MediaType.IMAGE_PNG;
+    } else if (name.endsWith(".gif")) {
+      return MediaType.IMAGE_GIF;
     }
+    return MediaType.IMAGE_JPEG;
   }
-}
\ No newline at end of file
+}
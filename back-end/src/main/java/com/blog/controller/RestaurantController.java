@@ -1,6 +1,9 @@
 package com.blog.controller;
 
+import com.blog.dto.MapCluster;
 import com.blog.dto.RestaurantResponse;
+import com.blog.dto.RestaurantSummary;
+import com.blog.exception.ValidationException;
 import com.blog.model.Restaurant;
 import com.blog.model.User;
 import com.blog.service.UserRestaurantService;
@@ -27,7 +30,6 @@ import com.blog.repository.UserRepository;
 
 import org.springframework.web.server.ResponseStatusException;
 
-import org.hibernate.Hibernate;
 import org.springframework.data.domain.Page;
 
 @RestController
@@ -76,37 +78,51 @@ public class RestaurantController {
       @RequestParam(required = false) String sort,
       @RequestParam(required = false) String keyword,
       @RequestParam(required = false) String category,
-      @RequestParam(required = false) Double minRating) {
+      @RequestParam(required = false) Double minRating,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lng,
+      @RequestParam(defaultValue = "2") double radiusKm,
+      @RequestParam(required = false) Double minLat,
+      @RequestParam(required = false) Double minLng,
+      @RequestParam(required = false) Double maxLat,
+      @RequestParam(required = false) Double maxLng) {
     try {
-      Long currentUserId = getCurrentUserId();
-      Page<Restaurant> restaurants = restaurantService.getAllRestaurants(
-          page, size, sort, keyword, category, minRating);
+      // 帶 lat/lng 時為半徑搜尋，依距離排序。半徑與地圖範圍搜尋最多取最近的 RestaurantGeoIndex.MAX_HITS 筆，
+      // 評分篩選與排序只作用在這些餐廳上；超過上限時回應的 truncated 為 true，hitLimit 為上限
+      if (lat != null || lng != null) {
+        if (lat == null || lng == null) {
+          throw new ValidationException("經緯度需同時提供");
+        }
+        return ResponseEntity.ok(restaurantService.getRestaurantsNearby(
+            lat, lng, radiusKm, page, size, keyword, category, minRating));
+      }
 
-      // 初始化評論並計算評分
-      restaurants.getContent().forEach(restaurant -> {
-        // 初始化評論
-        Hibernate.initialize(restaurant.getReviews());
-
-        // 設置評論數
-        restaurant.setReviewCount(restaurant.getReviews().size());
-
-        // 計算平均評分
-        if (!restaurant.getReviews().isEmpty()) {
-          double averageRating = restaurant.getReviews().stream()
-              .mapToInt(review -> review.getRating())
-              .average()
-              .orElse(0.0);
-          restaurant.setAverageRating(averageRating);
-        } else {
-          restaurant.setAverageRating(0.0);
+      // 帶地圖範圍時為 bounding box 搜尋
+      if (minLat != null || minLng != null || maxLat != null || maxLng != null) {
+        if (minLat == null || minLng == null || maxLat == null || maxLng == null) {
+          throw new ValidationException("需同時提供 minLat、minLng、maxLat、maxLng");
         }
-      });
+        return ResponseEntity.ok(restaurantService.getRestaurantsInBounds(
+            minLat, minLng, maxLat, maxLng, page, size, sort, keyword, category, minRating));
+      }
 
-      // 轉換成 DTO
-      Page<RestaurantResponse> responsePage = restaurants
-          .map(restaurant -> restaurantService.toDto(restaurant, currentUserId));
+      // 帶 cursor 參數（第一頁可為空字串）時改用游標分頁，依最新排序且不計算總數；
+      // 游標只記錄建立時間與 id，其他排序無法接續，直接拒絕而不是默默改用最新排序
+      if (cursor != null) {
+        if (sort != null && !sort.isBlank() && !"createdAt,desc".equalsIgnoreCase(sort.replace(" ", ""))) {
+          throw new ValidationException("游標分頁只支援依最新排序（createdAt,desc），請改用 page 參數");
+        }
+        return ResponseEntity.ok(restaurantService.getRestaurantsByCursor(
+            cursor, size, keyword, category, minRating));
+      }
 
-      return ResponseEntity.ok(responsePage);
+      // 列表只回傳摘要，完整評論僅在詳情端點提供
+      Page<RestaurantSummary> restaurants = restaurantService.getAllRestaurants(
+          page, size, sort, keyword, category, minRating);
+      return ResponseEntity.ok(restaurants);
+    } catch (ValidationException e) {
+      throw e;
     } catch (Exception e) {
       log.error("獲取餐廳列表時發生錯誤: {}", e.getMessage(), e);
       Map<String, String> errorResponse = new HashMap<>();
@@ -154,6 +170,8 @@ public class RestaurantController {
     newRestaurant.setPhone(dto.getPhone());
     newRestaurant.setCategory(dto.getCategory());
     newRestaurant.setDescription(dto.getDescription());
+    newRestaurant.setLatitude(dto.getLatitude());
+    newRestaurant.setLongitude(dto.getLongitude());
 
     // 如果有 removeImage 標記，傳入 null 作為圖片
     MultipartFile imageToUse = "true".equals(removeImage) ? null : image;
@@ -180,6 +198,14 @@ public class RestaurantController {
     return ResponseEntity.ok(averageRating);
   }
 
+  // 從評論重建餐廳評分聚合（管理員）
+  @PostMapping("/{id}/rating/reconcile")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Double> reconcileRating(@PathVariable Long id) {
+    restaurantService.reconcileRatingAggregates(id);
+    return ResponseEntity.ok(restaurantService.calculateAverageRating(id));
+  }
+
   // 收藏餐廳
   @PostMapping("/{restaurantId}/favorite")
   @PreAuthorize("hasAnyRole('REVIEWER')")
@@ -232,7 +258,7 @@ public class RestaurantController {
   // 獲得用戶喜歡的餐廳
   @GetMapping("/favorites")
   @PreAuthorize("hasAnyRole('REVIEWER')")
-  public ResponseEntity<List<RestaurantResponse>> getUserFavorites(Authentication authentication) {
+  public ResponseEntity<List<RestaurantSummary>> getUserFavorites(Authentication authentication) {
     if (authentication == null) {
       return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
     }
@@ -241,7 +267,7 @@ public class RestaurantController {
       UserDetails userDetails = (UserDetails) authentication.getPrincipal();
       Long currentUserId = ((User) userDetails).getId();
 
-      List<RestaurantResponse> favorites = restaurantService.getUserFavorites(currentUserId);
+      List<RestaurantSummary> favorites = restaurantService.getUserFavorites(currentUserId);
       // 這裡直接回傳空陣列，不要回 204
       return ResponseEntity.ok(favorites);
     } catch (Exception e) {
@@ -251,20 +277,40 @@ public class RestaurantController {
     }
   }
 
-  // 熱門餐廳
+  // 熱門餐廳（可指定分類）
   @GetMapping("/popular")
-  public List<RestaurantResponse> getPopularRestaurants() {
-    // 從 SecurityContext 獲取當前用戶 ID
-    Long currentUserId = getCurrentUserId();
-    return restaurantService.getPopularRestaurants(currentUserId);
+  public List<RestaurantSummary> getPopularRestaurants(@RequestParam(required = false) String category) {
+    return restaurantService.getPopularRestaurants(category);
+  }
+
+  // 趨勢餐廳（window=24h 或 7d）
+  @GetMapping("/trending")
+  public List<RestaurantSummary> getTrendingRestaurants(@RequestParam(defaultValue = "24h") String window) {
+    return restaurantService.getTrendingRestaurants(window);
   }
 
   // 最新餐廳
   @GetMapping("/latest")
-  public List<RestaurantResponse> getLatestRestaurants() {
-    // 從 SecurityContext 獲取當前用戶 ID
-    Long currentUserId = getCurrentUserId();
-    return restaurantService.getLatestRestaurants(currentUserId);
+  public List<RestaurantSummary> getLatestRestaurants() {
+    return restaurantService.getLatestRestaurants();
+  }
+
+  // 餐廳詳情快取統計（命中、未命中、淘汰與失效次數）
+  @GetMapping("/detail-cache/stats")
+  @PreAuthorize("hasRole('ADMIN')")
+  public Map<String, Object> getDetailCacheStats() {
+    return restaurantService.getDetailCacheStats();
+  }
+
+  // 地圖標記聚合：依地圖範圍與縮放層級回傳群集中心與數量
+  @GetMapping("/clusters")
+  public List<MapCluster> getRestaurantClusters(
+      @RequestParam double minLat,
+      @RequestParam double minLng,
+      @RequestParam double maxLat,
+      @RequestParam double maxLng,
+      @RequestParam int zoom) {
+    return restaurantService.getRestaurantClusters(minLat, minLng, maxLat, maxLng, zoom);
   }
 
   // 檢查餐廳是否被收藏
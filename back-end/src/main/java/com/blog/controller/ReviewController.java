@@ -1,6 +1,8 @@
 package com.blog.controller;
 
 import com.blog.dto.ReviewDTO;
+import com.blog.exception.ResourceNotFoundException;
+import com.blog.exception.ValidationException;
 import com.blog.model.Review;
 import com.blog.service.RestaurantService;
 import org.slf4j.Logger;
@@ -19,6 +21,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import com.blog.model.User;
 import com.blog.repository.UserRepository;
@@ -96,7 +99,8 @@ public class ReviewController {
             @PathVariable Long restaurantId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String sort) {
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor) {
 
         try {
             // 檢查餐廳是否存在
@@ -104,8 +108,11 @@ public class ReviewController {
                 return ResponseEntity.notFound().build();
             }
 
-            Map<String, Object> response = reviewService.getRestaurantReviewsWithPagination(
-                    restaurantId, page, size, sort);
+            // 帶 cursor 參數（第一頁可為空字串）時改用游標分頁
+            Map<String, Object> response = cursor != null
+                    ? reviewService.getRestaurantReviewsByCursor(restaurantId, cursor, size, sort, getCurrentUserId())
+                    : reviewService.getRestaurantReviewsWithPagination(restaurantId, page, size, sort,
+                            getCurrentUserId());
 
             // 確保返回的數據不為空
             if (response == null) {
@@ -118,6 +125,8 @@ public class ReviewController {
             }
 
             return ResponseEntity.ok(response);
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             System.err.println("Error in getAllReview: " + e.getMessage());
             e.printStackTrace();
@@ -141,20 +150,12 @@ public class ReviewController {
     @PreAuthorize("hasAnyRole('REVIEWER')")
     public ResponseEntity<Void> likeReview(@PathVariable Long reviewId, Authentication authentication) {
         try {
-            String username = authentication.getName();
-            logger.info("User {} attempting to like review {}", username, reviewId);
-
-            // 檢查評論是否存在
-            if (!reviewRepository.existsById(reviewId)) {
-                logger.error("Review {} does not exist", reviewId);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-            }
-
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("找不到該用戶"));
-
-            reviewService.likeReview(user.getId(), reviewId);
+            Long userId = ((User) authentication.getPrincipal()).getId();
+            reviewService.likeReview(userId, reviewId);
             return ResponseEntity.ok().build();
+        } catch (ResourceNotFoundException e) {
+            logger.error("Review {} does not exist", reviewId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (RuntimeException e) {
             logger.error("Error liking review: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -166,26 +167,25 @@ public class ReviewController {
     @PreAuthorize("hasAnyRole('REVIEWER')")
     public ResponseEntity<Void> unlikeReview(@PathVariable Long reviewId, Authentication authentication) {
         try {
-            String username = authentication.getName();
-            logger.info("User {} attempting to unlike review {}", username, reviewId);
-
-            // 檢查評論是否存在
-            if (!reviewRepository.existsById(reviewId)) {
-                logger.error("Review {} does not exist", reviewId);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-            }
-
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("找不到該用戶"));
-
-            reviewService.unlikeReview(user.getId(), reviewId);
+            Long userId = ((User) authentication.getPrincipal()).getId();
+            reviewService.unlikeReview(userId, reviewId);
             return ResponseEntity.ok().build();
+        } catch (ResourceNotFoundException e) {
+            logger.error("Review {} does not exist", reviewId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (RuntimeException e) {
             logger.error("Error unliking review: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // 評論載入的合併統計（single-flight）
+    @GetMapping("/load-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getLoadStats() {
+        return reviewService.getLoadStats();
+    }
+
     // 獲取評論的按讚數
     @GetMapping("/{reviewId}/like-count")
     public ResponseEntity<Long> getReviewLikeCount(@PathVariable Long reviewId) {
@@ -237,4 +237,12 @@ public class ReviewController {
         }
     }
 
+    // 獲取當前用戶 ID 的輔助方法（未登入時為 null）
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User) {
+            return ((User) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
 }
@@ -1,9 +1,11 @@
 package com.blog.controller;
 
 import com.blog.dto.*;
+import com.blog.exception.TooManyRequestsException;
 import com.blog.model.Restaurant;
 import com.blog.model.Review;
 import com.blog.model.User;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,7 @@ import com.blog.service.UserService;
 import com.blog.service.RestaurantService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.ResponseEntity.ok;
@@ -42,9 +45,10 @@ public class UserController {
 
     // 註冊用戶
     @PostMapping("/register")
-    public ResponseEntity<UserDTO> registerUser(@RequestBody UserRegisterDTO userRegisterDTO) {
+    public ResponseEntity<UserDTO> registerUser(@RequestBody UserRegisterDTO userRegisterDTO,
+            HttpServletRequest request) {
         try {
-            UserDTO registeredUser = userService.registerUser(userRegisterDTO);
+            UserDTO registeredUser = userService.registerUser(userRegisterDTO, request.getRemoteAddr());
             return ResponseEntity.status(HttpStatus.CREATED).body(registeredUser);
         } catch (RuntimeException e) {
             throw e;
@@ -54,18 +58,29 @@ public class UserController {
     // 登入
     @PreAuthorize("permitAll()")
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestBody UserLoginDTO userLoginDTO) {
+    public ResponseEntity<String> login(@RequestBody UserLoginDTO userLoginDTO, HttpServletRequest request) {
         try {
             System.out.println("收到登入請求 - 用戶名: " + userLoginDTO.getUsername());
-            String token = userService.authenticateUser(userLoginDTO.getUsername(), userLoginDTO.getPassword());
+            String token = userService.authenticateUser(userLoginDTO.getUsername(), userLoginDTO.getPassword(),
+                    request.getRemoteAddr());
             System.out.println("登入成功 - 生成 token");
             return ok(token);
+        } catch (TooManyRequestsException e) {
+            // 交給 GlobalExceptionHandler 回傳 429 與 Retry-After
+            throw e;
         } catch (Exception e) {
             System.out.println("登入失敗: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("登入失敗: " + e.getMessage());
         }
     }
 
+    // 密碼雜湊與登入限流統計
+    @GetMapping("/auth-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getAuthStats() {
+        return userService.getAuthStats();
+    }
+
     // 獲取當前用戶信息
     @GetMapping("/me")
     public ResponseEntity<UserDTO> getCurrentUser(@AuthenticationPrincipal UserDetails userDetails) {
@@ -84,8 +99,8 @@ public class UserController {
     // 查看收藏的餐廳
     @GetMapping("/{userId}/favorites")
     @PreAuthorize("hasAnyRole('REVIEWER')")
-    public ResponseEntity<List<RestaurantResponse>> getUserFavoriteRestaurants(@PathVariable Long userId) {
-        List<RestaurantResponse> responseList = userService.getUserFavoriteRestaurants(userId);
+    public ResponseEntity<List<RestaurantSummary>> getUserFavoriteRestaurants(@PathVariable Long userId) {
+        List<RestaurantSummary> responseList = userService.getUserFavoriteRestaurants(userId);
 
         if (responseList.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -104,8 +119,8 @@ public class UserController {
     // 查看用戶創建的餐廳
     @GetMapping("/{userId}/restaurants")
     @PreAuthorize("hasAnyRole('REVIEWER')")
-    public ResponseEntity<List<RestaurantResponse>> getUserCreatedRestaurants(@PathVariable Long userId) {
-        List<RestaurantResponse> responseList = userService.getUserCreatedRestaurants(userId);
+    public ResponseEntity<List<RestaurantSummary>> getUserCreatedRestaurants(@PathVariable Long userId) {
+        List<RestaurantSummary> responseList = userService.getUserCreatedRestaurants(userId);
         responseList.forEach(restaurant -> {
             // 已移除詳細日誌
         });
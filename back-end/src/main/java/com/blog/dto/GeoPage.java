@@ -0,0 +1,32 @@
+package com.blog.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+/**
+ * Class Name: GeoPage
+ * Package: com.blog.dto
+ * Description: 半徑與地圖範圍搜尋的分頁結果；座標索引只保留最近的 hitLimit 筆，
+ *              範圍內符合條件的餐廳超過上限時 truncated 為 true，評分篩選、排序與 totalElements 只涵蓋保留的部分
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public class GeoPage<T> extends PageImpl<T> {
+    private final boolean truncated;
+    private final int hitLimit;
+
+    public GeoPage(Page<T> page, boolean truncated, int hitLimit) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.truncated = truncated;
+        this.hitLimit = hitLimit;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public int getHitLimit() {
+        return hitLimit;
+    }
+}
@@ -0,0 +1,60 @@
+package com.blog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Class Name: MapCluster
+ * Package: com.blog.dto
+ * Description: 地圖標記聚合結果：多間餐廳時為群集中心與數量，只有一間時帶餐廳 ID
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MapCluster {
+    private double latitude;
+    private double longitude;
+    private int count;
+    private Long restaurantId;
+
+    public MapCluster() {}
+
+    public MapCluster(double latitude, double longitude, int count, Long restaurantId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.restaurantId = restaurantId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Long getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(Long restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+}
@@ -25,12 +25,40 @@ public class RestaurantResponse {
     private String description;
     private String createdByUsername;
     private String imageUrl;
+    private String imageThumbnailUrl;
+    private String imageMediumUrl;
     private Double averageRating;
     private List<ReviewDTO> reviews;
     private int reviewCount;
+    private Double latitude;
+    private Double longitude;
 
     public RestaurantResponse() {}
 
+    // 複製一份，評論清單也逐筆複製（快取的共用內容不可被個別請求修改）
+    public RestaurantResponse(RestaurantResponse other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.address = other.address;
+        this.phone = other.phone;
+        this.category = other.category;
+        this.description = other.description;
+        this.createdByUsername = other.createdByUsername;
+        this.imageUrl = other.imageUrl;
+        this.imageThumbnailUrl = other.imageThumbnailUrl;
+        this.imageMediumUrl = other.imageMediumUrl;
+        this.averageRating = other.averageRating;
+        this.reviewCount = other.reviewCount;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+        if (other.reviews != null) {
+            this.reviews = new ArrayList<>(other.reviews.size());
+            for (ReviewDTO review : other.reviews) {
+                this.reviews.add(new ReviewDTO(review));
+            }
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -95,6 +123,22 @@ public class RestaurantResponse {
         this.imageUrl = imageUrl;
     }
 
+    public String getImageThumbnailUrl() {
+        return imageThumbnailUrl;
+    }
+
+    public void setImageThumbnailUrl(String imageThumbnailUrl) {
+        this.imageThumbnailUrl = imageThumbnailUrl;
+    }
+
+    public String getImageMediumUrl() {
+        return imageMediumUrl;
+    }
+
+    public void setImageMediumUrl(String imageMediumUrl) {
+        this.imageMediumUrl = imageMediumUrl;
+    }
+
     public Double getAverageRating() {
         return averageRating;
     }
@@ -118,4 +162,20 @@ public class RestaurantResponse {
     public void setReviewCount(int reviewCount) {
         this.reviewCount = reviewCount;
     }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 }
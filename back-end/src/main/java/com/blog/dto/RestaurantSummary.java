@@ -0,0 +1,165 @@
+package com.blog.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Class Name: RestaurantSummary
+ * Package: com.blog.dto
+ * Description: 列表與卡片用的餐廳摘要，不含評論內容，由 JPQL 建構式投影直接填入
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestaurantSummary {
+    private Long id;
+    private String name;
+    private String address;
+    private String category;
+    private String imageUrl;
+    // 縮圖網址，尚未產生時不輸出
+    private String imageThumbnailUrl;
+    private String imageMediumUrl;
+    private String createdByUsername;
+    private Double averageRating;
+    private int reviewCount;
+    private LocalDateTime createdAt;
+    private Double latitude;
+    private Double longitude;
+    // 與查詢中心點的距離（公里），只在範圍搜尋時提供
+    private Double distanceKm;
+
+    public RestaurantSummary() {}
+
+    public RestaurantSummary(Long id, String name, String address, String category, String imageUrl,
+                             String imageThumbnailUrl, String imageMediumUrl, String createdByUsername, Double averageRating, Integer reviewCount,
+                             LocalDateTime createdAt, Double latitude, Double longitude) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+        this.category = category;
+        this.imageUrl = imageUrl;
+        this.imageThumbnailUrl = imageThumbnailUrl;
+        this.imageMediumUrl = imageMediumUrl;
+        this.createdByUsername = createdByUsername;
+        this.averageRating = averageRating == null ? 0.0 : averageRating;
+        this.reviewCount = reviewCount == null ? 0 : reviewCount;
+        this.createdAt = createdAt;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getImageThumbnailUrl() {
+        return imageThumbnailUrl;
+    }
+
+    public void setImageThumbnailUrl(String imageThumbnailUrl) {
+        this.imageThumbnailUrl = imageThumbnailUrl;
+    }
+
+    public String getImageMediumUrl() {
+        return imageMediumUrl;
+    }
+
+    public void setImageMediumUrl(String imageMediumUrl) {
+        this.imageMediumUrl = imageMediumUrl;
+    }
+
+    public String getCreatedByUsername() {
+        return createdByUsername;
+    }
+
+    public void setCreatedByUsername(String createdByUsername) {
+        this.createdByUsername = createdByUsername;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    public void setAverageRating(Double averageRating) {
+        this.averageRating = averageRating;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(int reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(Double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -20,6 +20,8 @@ public class ReviewDTO {
   private LocalDateTime updated_At;
 
   private String imageUrl;  // 保留單張圖片
+  private String imageThumbnailUrl;  // 縮圖，尚未產生時為 null
+  private String imageMediumUrl;
 
   private Long userId;
   private String username;
@@ -46,10 +48,28 @@ public class ReviewDTO {
     this.restaurantId = restaurantId;
   }
 
+  public ReviewDTO(Long id, String content, Integer rating, LocalDateTime created_At, LocalDateTime updated_At, String imageUrl, Long userId, String username, Role userRole, String restaurantName, Long restaurantId, Integer likeCount) {
+    this(id, content, rating, created_At, updated_At, imageUrl, userId, username, userRole, restaurantName, restaurantId);
+    this.likeCount = likeCount;
+  }
+
+  public ReviewDTO(Long id, String content, Integer rating, LocalDateTime created_At, LocalDateTime updated_At, String imageUrl, Long userId, String username, Role userRole, String restaurantName, Long restaurantId, Integer likeCount, String imageThumbnailUrl, String imageMediumUrl) {
+    this(id, content, rating, created_At, updated_At, imageUrl, userId, username, userRole, restaurantName, restaurantId, likeCount);
+    this.imageThumbnailUrl = imageThumbnailUrl;
+    this.imageMediumUrl = imageMediumUrl;
+  }
+
   public ReviewDTO() {
 
   }
 
+  // 複製一份（快取的共用內容不可被個別請求的 isLiked 覆寫）
+  public ReviewDTO(ReviewDTO other) {
+    this(other.id, other.content, other.rating, other.created_At, other.updated_At, other.imageUrl, other.userId, other.username, other.userRole, other.restaurantName, other.restaurantId, other.likeCount, other.imageThumbnailUrl, other.imageMediumUrl);
+    this.isLiked = other.isLiked;
+    this.isEdited = other.isEdited;
+  }
+
   public Long getId() {
     return id;
   }
@@ -0,0 +1,15 @@
+package com.blog.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+  // 建議用戶端幾秒後重試
+  private final long retryAfterSeconds;
+
+  public TooManyRequestsException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -6,8 +6,10 @@ import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -20,6 +22,13 @@ import java.util.Set;
  */
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_restaurant_category_rating", columnList = "category, average_rating"),
+        @Index(name = "idx_restaurant_rating", columnList = "average_rating, review_count"),
+        @Index(name = "idx_restaurant_review_count", columnList = "review_count"),
+        @Index(name = "idx_restaurant_category_review_count", columnList = "category, review_count"),
+        @Index(name = "idx_restaurant_created_at", columnList = "created_at")
+})
 public class Restaurant {
 
     @Id
@@ -36,10 +45,25 @@ public class Restaurant {
     @OneToMany(mappedBy = "restaurant", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Review> reviews = new ArrayList<>();
-    private Double averageRating;
     private String description;
-    @Transient
-    private int reviewCount;
+
+    // 評分聚合欄位：只透過 RestaurantRepository 的原子 SQL 更新，實體儲存時不覆寫
+    @Column(name = "average_rating", updatable = false)
+    private Double averageRating = 0.0;
+    @Column(name = "rating_sum", updatable = false)
+    private Long ratingSum = 0L;
+    @Column(name = "review_count", updatable = false)
+    private Integer reviewCount = 0;
+    @Column(name = "star1_count", updatable = false)
+    private Integer star1Count = 0;
+    @Column(name = "star2_count", updatable = false)
+    private Integer star2Count = 0;
+    @Column(name = "star3_count", updatable = false)
+    private Integer star3Count = 0;
+    @Column(name = "star4_count", updatable = false)
+    private Integer star4Count = 0;
+    @Column(name = "star5_count", updatable = false)
+    private Integer star5Count = 0;
 
 
 
@@ -52,8 +76,18 @@ public class Restaurant {
 
     private String imageUrl;
 
+    // 背景產生的縮圖網址，尚未產生或沒有圖片時為 null；只透過 RestaurantRepository 的 UPDATE 寫入，實體儲存時不覆寫
+    @Column(name = "image_thumbnail_url", insertable = false, updatable = false)
+    private String imageThumbnailUrl;
+    @Column(name = "image_medium_url", insertable = false, updatable = false)
+    private String imageMediumUrl;
+
     private String createdByUsername;
 
+    // 地圖座標（WGS84），未提供時為 null
+    private Double latitude;
+    private Double longitude;
+
     public Restaurant() {
         // 默認構造函數，用於 JPA 和序列化
     }
@@ -139,6 +173,22 @@ public class Restaurant {
         this.imageUrl = imageUrl;
     }
 
+    public String getImageThumbnailUrl() {
+        return imageThumbnailUrl;
+    }
+
+    public void setImageThumbnailUrl(String imageThumbnailUrl) {
+        this.imageThumbnailUrl = imageThumbnailUrl;
+    }
+
+    public String getImageMediumUrl() {
+        return imageMediumUrl;
+    }
+
+    public void setImageMediumUrl(String imageMediumUrl) {
+        this.imageMediumUrl = imageMediumUrl;
+    }
+
     public String getCreatedByUsername() {
         return createdByUsername;
     }
@@ -156,10 +206,86 @@ public class Restaurant {
     }
 
     public int getReviewCount() {
-        return reviewCount;
+        return reviewCount == null ? 0 : reviewCount;
     }
 
     public void setReviewCount(int reviewCount) {
         this.reviewCount = reviewCount;
     }
+
+    public Long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public Integer getStar1Count() {
+        return star1Count;
+    }
+
+    public void setStar1Count(Integer star1Count) {
+        this.star1Count = star1Count;
+    }
+
+    public Integer getStar2Count() {
+        return star2Count;
+    }
+
+    public void setStar2Count(Integer star2Count) {
+        this.star2Count = star2Count;
+    }
+
+    public Integer getStar3Count() {
+        return star3Count;
+    }
+
+    public void setStar3Count(Integer star3Count) {
+        this.star3Count = star3Count;
+    }
+
+    public Integer getStar4Count() {
+        return star4Count;
+    }
+
+    public void setStar4Count(Integer star4Count) {
+        this.star4Count = star4Count;
+    }
+
+    public Integer getStar5Count() {
+        return star5Count;
+    }
+
+    public void setStar5Count(Integer star5Count) {
+        this.star5Count = star5Count;
+    }
+
+    // 星等分布（1~5 星各自的評論數）
+    @JsonIgnore
+    public Map<Integer, Long> getStarDistribution() {
+        Map<Integer, Long> distribution = new HashMap<>();
+        distribution.put(1, star1Count == null ? 0L : star1Count.longValue());
+        distribution.put(2, star2Count == null ? 0L : star2Count.longValue());
+        distribution.put(3, star3Count == null ? 0L : star3Count.longValue());
+        distribution.put(4, star4Count == null ? 0L : star4Count.longValue());
+        distribution.put(5, star5Count == null ? 0L : star5Count.longValue());
+        return distribution;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 }
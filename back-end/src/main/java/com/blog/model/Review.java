@@ -20,7 +20,10 @@ import java.util.Set;
 
 @Data
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "idx_reviews_restaurant_created", columnList = "restaurant_id, created_at"),
+        @Index(name = "idx_reviews_restaurant_likes", columnList = "restaurant_id, like_count")
+})
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Review {
 
@@ -45,6 +48,16 @@ public class Review {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // 背景產生的縮圖網址，尚未產生或沒有圖片時為 null；只透過 ReviewRepository 的 UPDATE 寫入，實體儲存時不覆寫
+    @Column(name = "image_thumbnail_url", insertable = false, updatable = false)
+    private String imageThumbnailUrl;
+    @Column(name = "image_medium_url", insertable = false, updatable = false)
+    private String imageMediumUrl;
+
+    // 按讚數：只透過 ReviewRepository 的原子 SQL 增減，實體儲存時不覆寫
+    @Column(name = "like_count", updatable = false)
+    private Integer likeCount = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference(value = "user-reviews")
@@ -12,7 +12,9 @@ import jakarta.persistence.*;
  * Version: 1.0
  */
 @Entity
-@Table(name = "review_likes")
+@Table(name = "review_likes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_review_likes_user_review", columnNames = { "user_id", "review_id" })
+})
 public class ReviewLike {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,6 +39,10 @@ public class User implements UserDetails {
 
     private LocalDateTime createdAt;
 
+    // 權杖版本：改密碼等需要讓舊 JWT 失效時遞增，JWT 內的版本不符即視為失效
+    @Column(name = "token_version")
+    private Integer tokenVersion;
+
     @OneToMany(mappedBy = "user")
     @JsonIgnore
     private List<UserRestaurant> userRestaurants;
@@ -124,6 +128,15 @@ public class User implements UserDetails {
         this.createdAt = createdAt;
     }
 
+    // 舊資料欄位為 null，視為版本 0
+    public int getTokenVersion() {
+        return tokenVersion == null ? 0 : tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<UserRestaurant> getUserRestaurants() {
         return userRestaurants;
     }
@@ -1,13 +1,18 @@
 package com.blog.repository;
 
+import com.blog.dto.RestaurantSummary;
 import com.blog.model.Restaurant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
@@ -23,19 +28,177 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
 
   List<Restaurant> findTop10ByOrderByCreatedAtDesc();
 
-  // 熱門餐廳：根據評論數和平均評分排序
-  @Query("SELECT r FROM Restaurant r LEFT JOIN r.reviews rv GROUP BY r ORDER BY COUNT(rv) DESC, AVG(rv.rating) DESC")
-  List<Restaurant> findPopularRestaurants();
+  // 餐廳摘要欄位（列表與卡片使用，不載入評論）
+  String SUMMARY_SELECT = "SELECT new com.blog.dto.RestaurantSummary(" +
+          "r.id, r.name, r.address, r.category, r.imageUrl, r.imageThumbnailUrl, r.imageMediumUrl, r.createdByUsername, r.averageRating, r.reviewCount, " +
+          "r.createdAt, r.latitude, r.longitude) ";
 
+  // 熱門餐廳：根據評論數和平均評分排序，筆數由 Pageable 限制
+  @Query(SUMMARY_SELECT + "FROM Restaurant r ORDER BY r.reviewCount DESC, r.averageRating DESC, r.id DESC")
+  List<RestaurantSummary> findPopularSummaries(Pageable pageable);
 
-  // 添加新的篩選方法
-  @Query("SELECT r FROM Restaurant r WHERE " +
+  // 各分類的熱門餐廳 ID：以視窗函數一次取出每個分類的前 limit 名，排序與 findPopularSummaries 相同
+  @Query(value = "SELECT ranked.id FROM (" +
+          "SELECT r.id, ROW_NUMBER() OVER (PARTITION BY r.category " +
+          "ORDER BY r.review_count DESC, r.average_rating DESC, r.id DESC) AS rn FROM restaurant r" +
+          ") ranked WHERE ranked.rn <= :limit",
+          nativeQuery = true)
+  List<Long> findPopularIdsPerCategory(@Param("limit") int limit);
+
+  // 單一餐廳摘要
+  @Query(SUMMARY_SELECT + "FROM Restaurant r WHERE r.id = :id")
+  Optional<RestaurantSummary> findSummaryById(@Param("id") Long id);
+
+  // 最新餐廳
+  @Query(SUMMARY_SELECT + "FROM Restaurant r ORDER BY r.createdAt DESC, r.id DESC")
+  List<RestaurantSummary> findLatestSummaries(Pageable pageable);
+
+  // 用戶收藏的餐廳
+  @Query(SUMMARY_SELECT + "FROM UserRestaurant ur JOIN ur.restaurant r WHERE ur.user.id = :userId")
+  List<RestaurantSummary> findFavoriteSummariesByUserId(@Param("userId") Long userId);
+
+  // 用戶創建的餐廳
+  @Query(SUMMARY_SELECT + "FROM Restaurant r WHERE r.createdByUsername = :username")
+  List<RestaurantSummary> findSummariesByCreatedByUsername(@Param("username") String username);
+
+  // 添加新的篩選方法：評分門檻與排序皆在資料庫端依儲存的聚合欄位處理
+  @Query(value = SUMMARY_SELECT + "FROM Restaurant r WHERE " +
+          "(:keyword IS NULL OR LOWER(r.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+          "LOWER(r.address) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating)",
+          countQuery = "SELECT COUNT(r) FROM Restaurant r WHERE " +
+          "(:keyword IS NULL OR LOWER(r.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+          "LOWER(r.address) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating)")
+  Page<RestaurantSummary> findAllWithFilters(
+          @Param("keyword") String keyword,
+          @Param("category") String category,
+          @Param("minRating") Double minRating,
+          Pageable pageable
+  );
+
+  // keyset 分頁：以 (createdAt, id) 向後查找，不需 OFFSET 與 COUNT；limit 由 Pageable 提供
+  @Query(SUMMARY_SELECT + "FROM Restaurant r WHERE " +
           "(:keyword IS NULL OR LOWER(r.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
           "LOWER(r.address) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
-          "(:category IS NULL OR r.category = :category)")
-  Page<Restaurant> findAllWithFilters(
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating) AND " +
+          "(:afterId IS NULL OR r.createdAt < :afterCreatedAt OR " +
+          "(r.createdAt = :afterCreatedAt AND r.id < :afterId)) " +
+          "ORDER BY r.createdAt DESC, r.id DESC")
+  List<RestaurantSummary> findSummariesAfter(
           @Param("keyword") String keyword,
           @Param("category") String category,
+          @Param("minRating") Double minRating,
+          @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+          @Param("afterId") Long afterId,
+          Pageable pageable
+  );
+
+  // 關鍵字搜尋：候選 ID 由記憶體搜尋索引提供，資料庫只負責其餘篩選、排序與分頁
+  @Query(value = SUMMARY_SELECT + "FROM Restaurant r WHERE r.id IN :ids AND " +
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating)",
+          countQuery = "SELECT COUNT(r) FROM Restaurant r WHERE r.id IN :ids AND " +
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating)")
+  Page<RestaurantSummary> findSummariesByIdIn(
+          @Param("ids") List<Long> ids,
+          @Param("category") String category,
+          @Param("minRating") Double minRating,
+          Pageable pageable
+  );
+
+  // 關鍵字搜尋的 keyset 分頁
+  @Query(SUMMARY_SELECT + "FROM Restaurant r WHERE r.id IN :ids AND " +
+          "(:category IS NULL OR r.category = :category) AND " +
+          "(:minRating IS NULL OR r.averageRating >= :minRating) AND " +
+          "(:afterId IS NULL OR r.createdAt < :afterCreatedAt OR " +
+          "(r.createdAt = :afterCreatedAt AND r.id < :afterId)) " +
+          "ORDER BY r.createdAt DESC, r.id DESC")
+  List<RestaurantSummary> findSummariesAfterByIdIn(
+          @Param("ids") List<Long> ids,
+          @Param("category") String category,
+          @Param("minRating") Double minRating,
+          @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+          @Param("afterId") Long afterId,
           Pageable pageable
   );
-}
\ No newline at end of file
+
+  // 建立搜尋索引所需的欄位：[id, name, address, category, description]
+  @Query("SELECT r.id, r.name, r.address, r.category, r.description FROM Restaurant r")
+  List<Object[]> findSearchDocuments();
+
+  // 建立座標索引所需的欄位：[id, latitude, longitude, category]
+  @Query("SELECT r.id, r.latitude, r.longitude, r.category FROM Restaurant r " +
+          "WHERE r.latitude IS NOT NULL AND r.longitude IS NOT NULL")
+  List<Object[]> findGeoDocuments();
+
+  // 評分聚合：以單一 UPDATE 原子地套用增量，不需載入評論集合
+  @Modifying
+  @Query("UPDATE Restaurant r SET " +
+          "r.ratingSum = COALESCE(r.ratingSum, 0) + :sumDelta, " +
+          "r.reviewCount = COALESCE(r.reviewCount, 0) + :countDelta, " +
+          "r.star1Count = COALESCE(r.star1Count, 0) + :star1Delta, " +
+          "r.star2Count = COALESCE(r.star2Count, 0) + :star2Delta, " +
+          "r.star3Count = COALESCE(r.star3Count, 0) + :star3Delta, " +
+          "r.star4Count = COALESCE(r.star4Count, 0) + :star4Delta, " +
+          "r.star5Count = COALESCE(r.star5Count, 0) + :star5Delta " +
+          "WHERE r.id = :id")
+  int adjustRatingAggregates(
+          @Param("id") Long id,
+          @Param("sumDelta") long sumDelta,
+          @Param("countDelta") int countDelta,
+          @Param("star1Delta") int star1Delta,
+          @Param("star2Delta") int star2Delta,
+          @Param("star3Delta") int star3Delta,
+          @Param("star4Delta") int star4Delta,
+          @Param("star5Delta") int star5Delta
+  );
+
+  // 依已更新的總分與評論數重算平均評分（獨立語句，避免不同資料庫對 SET 求值順序的差異）
+  @Modifying
+  @Query("UPDATE Restaurant r SET r.averageRating = " +
+          "CASE WHEN r.reviewCount > 0 THEN r.ratingSum * 1.0 / r.reviewCount ELSE 0.0 END " +
+          "WHERE r.id = :id")
+  int refreshAverageRating(@Param("id") Long id);
+
+  // 重建評分聚合時直接覆寫所有欄位
+  @Modifying
+  @Query("UPDATE Restaurant r SET " +
+          "r.ratingSum = :ratingSum, r.reviewCount = :reviewCount, " +
+          "r.star1Count = :star1Count, r.star2Count = :star2Count, r.star3Count = :star3Count, " +
+          "r.star4Count = :star4Count, r.star5Count = :star5Count, " +
+          "r.averageRating = :averageRating " +
+          "WHERE r.id = :id")
+  int overwriteRatingAggregates(
+          @Param("id") Long id,
+          @Param("ratingSum") long ratingSum,
+          @Param("reviewCount") int reviewCount,
+          @Param("star1Count") int star1Count,
+          @Param("star2Count") int star2Count,
+          @Param("star3Count") int star3Count,
+          @Param("star4Count") int star4Count,
+          @Param("star5Count") int star5Count,
+          @Param("averageRating") double averageRating
+  );
+
+  // 尚未建立評分聚合的餐廳（例如欄位新增前的舊資料）
+  @Query("SELECT r.id FROM Restaurant r WHERE r.reviewCount IS NULL OR r.ratingSum IS NULL")
+  List<Long> findIdsWithMissingRatingAggregates();
+
+  // 縮圖產生後寫回；圖片已被更換或刪除時不更新（回傳 0）。由背景執行緒呼叫，自行開啟交易
+  @Modifying
+  @Transactional
+  @Query("UPDATE Restaurant r SET r.imageThumbnailUrl = :thumbnailUrl, r.imageMediumUrl = :mediumUrl " +
+          "WHERE r.id = :id AND r.imageUrl = :imageUrl")
+  int attachImageVariants(@Param("id") Long id, @Param("imageUrl") String imageUrl,
+          @Param("thumbnailUrl") String thumbnailUrl, @Param("mediumUrl") String mediumUrl);
+
+  // 更換或移除圖片時清除舊的縮圖網址
+  @Modifying
+  @Query("UPDATE Restaurant r SET r.imageThumbnailUrl = NULL, r.imageMediumUrl = NULL WHERE r.id = :id")
+  int clearImageVariants(@Param("id") Long id);
+}
@@ -1,14 +1,14 @@
 package com.blog.repository;
 
-import com.blog.model.Review;
 import com.blog.model.ReviewLike;
-import com.blog.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Class Name: ReviewLikeRepository
@@ -19,19 +19,26 @@ import java.util.Optional;
  * Version: 1.0
  */
 public interface ReviewLikeRepository extends JpaRepository<ReviewLike, Long> {
-    boolean existsByUserAndReview(User user, Review review);
-
-    void deleteByUserAndReview(User user, Review review);
-
-    long countByReview(Review review);
-
     // 根據評論ID刪除所有點贊記錄
     @Modifying
     @Transactional
     @Query("DELETE FROM ReviewLike rl WHERE rl.review.id = :reviewId")
     void deleteByReviewId(Long reviewId);
 
+    // 批次查詢用戶在指定評論中按讚過哪些
+    @Query("SELECT rl.review.id FROM ReviewLike rl WHERE rl.user.id = :userId AND rl.review.id IN :reviewIds")
+    List<Long> findLikedReviewIds(@Param("userId") Long userId, @Param("reviewIds") Collection<Long> reviewIds);
 
-    Optional<ReviewLike> findByUserAndReview(User user, Review review);
+    // 冪等按讚：已存在則忽略（依 user_id + review_id 唯一約束），評論不存在時不新增，回傳實際新增筆數
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO review_likes (user_id, review_id) " +
+            "SELECT :userId, r.id FROM reviews r WHERE r.id = :reviewId",
+            nativeQuery = true)
+    int insertIgnore(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
+
+    // 冪等取消按讚，回傳實際刪除筆數
+    @Modifying
+    @Query("DELETE FROM ReviewLike rl WHERE rl.user.id = :userId AND rl.review.id = :reviewId")
+    int deleteByUserIdAndReviewId(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
 
 }
@@ -2,12 +2,19 @@ package com.blog.repository;
 
 import com.blog.dto.ReviewDTO;
 import com.blog.model.Review;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Class Name: AnswerRepository
@@ -36,4 +43,108 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
             "FROM Review r " +
             "WHERE r.user.id = :userId")
     List<ReviewDTO> findReviewsWithDetailsByUserId(@Param("userId") Long userId);
+
+    // 依星等分組統計餐廳評論數：[rating, count]
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.restaurant.id = :restaurantId GROUP BY r.rating")
+    List<Object[]> countByRatingForRestaurant(@Param("restaurantId") Long restaurantId);
+
+    // 餐廳評論分頁（最新）：只取當頁資料，直接投影為 DTO
+    @Query(value = "SELECT new com.blog.dto.ReviewDTO(" +
+            "r.id, r.content, r.rating, r.created_At, r.updated_At, r.imageUrl, " +
+            "u.id, u.username, u.role, rs.name, rs.id, COALESCE(r.likeCount, 0), " +
+            "r.imageThumbnailUrl, r.imageMediumUrl" +
+            ") " +
+            "FROM Review r JOIN r.user u JOIN r.restaurant rs " +
+            "WHERE rs.id = :restaurantId " +
+            "ORDER BY r.created_At DESC, r.id DESC",
+            countQuery = "SELECT COUNT(r) FROM Review r WHERE r.restaurant.id = :restaurantId")
+    Page<ReviewDTO> findPageByRestaurantIdOrderByNewest(@Param("restaurantId") Long restaurantId, Pageable pageable);
+
+    // 餐廳評論分頁（按讚數）
+    @Query(value = "SELECT new com.blog.dto.ReviewDTO(" +
+            "r.id, r.content, r.rating, r.created_At, r.updated_At, r.imageUrl, " +
+            "u.id, u.username, u.role, rs.name, rs.id, COALESCE(r.likeCount, 0), " +
+            "r.imageThumbnailUrl, r.imageMediumUrl" +
+            ") " +
+            "FROM Review r JOIN r.user u JOIN r.restaurant rs " +
+            "WHERE rs.id = :restaurantId " +
+            "ORDER BY r.likeCount DESC, r.created_At DESC, r.id DESC",
+            countQuery = "SELECT COUNT(r) FROM Review r WHERE r.restaurant.id = :restaurantId")
+    Page<ReviewDTO> findPageByRestaurantIdOrderByLikes(@Param("restaurantId") Long restaurantId, Pageable pageable);
+
+    // 批次取得多間餐廳的評論 DTO（含作者與按讚數），避免逐筆延遲載入
+    @Query("SELECT new com.blog.dto.ReviewDTO(" +
+            "r.id, r.content, r.rating, r.created_At, r.updated_At, r.imageUrl, " +
+            "u.id, u.username, u.role, rs.name, rs.id, COALESCE(r.likeCount, 0), " +
+            "r.imageThumbnailUrl, r.imageMediumUrl" +
+            ") " +
+            "FROM Review r JOIN r.user u JOIN r.restaurant rs " +
+            "WHERE rs.id IN :restaurantIds " +
+            "ORDER BY r.id")
+    List<ReviewDTO> findDtosByRestaurantIds(@Param("restaurantIds") Collection<Long> restaurantIds);
+
+    // 按讚數原子增減
+    @Modifying
+    @Query("UPDATE Review r SET r.likeCount = COALESCE(r.likeCount, 0) + :delta WHERE r.id = :reviewId")
+    int adjustLikeCount(@Param("reviewId") Long reviewId, @Param("delta") int delta);
+
+    // 評論所屬的餐廳 ID
+    @Query("SELECT r.restaurant.id FROM Review r WHERE r.id = :reviewId")
+    Optional<Long> findRestaurantIdById(@Param("reviewId") Long reviewId);
+
+    @Query("SELECT COALESCE(r.likeCount, 0) FROM Review r WHERE r.id = :reviewId")
+    Optional<Integer> findLikeCountById(@Param("reviewId") Long reviewId);
+
+    // 從 review_likes 重建尚未初始化的按讚數（例如欄位新增前的舊資料）
+    @Modifying
+    @Query("UPDATE Review r SET r.likeCount = (SELECT COUNT(l) FROM ReviewLike l WHERE l.review.id = r.id) " +
+            "WHERE r.likeCount IS NULL")
+    int backfillMissingLikeCounts();
+
+    // keyset 分頁（最新）：以 (created_at, id) 向後查找
+    @Query("SELECT new com.blog.dto.ReviewDTO(" +
+            "r.id, r.content, r.rating, r.created_At, r.updated_At, r.imageUrl, " +
+            "u.id, u.username, u.role, rs.name, rs.id, COALESCE(r.likeCount, 0), " +
+            "r.imageThumbnailUrl, r.imageMediumUrl" +
+            ") " +
+            "FROM Review r JOIN r.user u JOIN r.restaurant rs " +
+            "WHERE rs.id = :restaurantId AND (:afterId IS NULL OR r.created_At < :afterCreatedAt OR " +
+            "(r.created_At = :afterCreatedAt AND r.id < :afterId)) " +
+            "ORDER BY r.created_At DESC, r.id DESC")
+    List<ReviewDTO> findByRestaurantIdNewestAfter(
+            @Param("restaurantId") Long restaurantId,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // keyset 分頁（按讚數）：以 (like_count, created_at, id) 向後查找
+    @Query("SELECT new com.blog.dto.ReviewDTO(" +
+            "r.id, r.content, r.rating, r.created_At, r.updated_At, r.imageUrl, " +
+            "u.id, u.username, u.role, rs.name, rs.id, COALESCE(r.likeCount, 0), " +
+            "r.imageThumbnailUrl, r.imageMediumUrl" +
+            ") " +
+            "FROM Review r JOIN r.user u JOIN r.restaurant rs " +
+            "WHERE rs.id = :restaurantId AND (:afterId IS NULL OR r.likeCount < :afterLikeCount OR " +
+            "(r.likeCount = :afterLikeCount AND (r.created_At < :afterCreatedAt OR " +
+            "(r.created_At = :afterCreatedAt AND r.id < :afterId)))) " +
+            "ORDER BY r.likeCount DESC, r.created_At DESC, r.id DESC")
+    List<ReviewDTO> findByRestaurantIdLikesAfter(
+            @Param("restaurantId") Long restaurantId,
+            @Param("afterLikeCount") Integer afterLikeCount,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    // 縮圖產生後寫回；圖片已被更換或刪除時不更新（回傳 0）。由背景執行緒呼叫，自行開啟交易
+    @Modifying
+    @Transactional
+    @Query("UPDATE Review r SET r.imageThumbnailUrl = :thumbnailUrl, r.imageMediumUrl = :mediumUrl " +
+            "WHERE r.id = :id AND r.imageUrl = :imageUrl")
+    int attachImageVariants(@Param("id") Long id, @Param("imageUrl") String imageUrl,
+            @Param("thumbnailUrl") String thumbnailUrl, @Param("mediumUrl") String mediumUrl);
+
+    // 更換或移除圖片時清除舊的縮圖網址
+    @Modifying
+    @Query("UPDATE Review r SET r.imageThumbnailUrl = NULL, r.imageMediumUrl = NULL WHERE r.id = :id")
+    int clearImageVariants(@Param("id") Long id);
 }
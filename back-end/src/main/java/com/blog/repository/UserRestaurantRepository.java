@@ -9,7 +9,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -27,8 +26,6 @@ public interface UserRestaurantRepository extends JpaRepository<UserRestaurant,
 
     void delete(UserRestaurant userRestaurant);
 
-    List<UserRestaurant> findByUserId(Long userId);
-
     @Modifying
     @Transactional
     @Query("DELETE FROM UserRestaurant ur WHERE ur.restaurant.id = :restaurantId")
@@ -4,7 +4,10 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.http.HttpMethod;
+import com.blog.model.User;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,9 +18,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -31,103 +32,67 @@ import java.util.stream.Collectors;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
+    private final SecurityRoutes securityRoutes;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
+    // true：由 JWT claims 建立主體，不在每個請求查詢使用者；false：沿用逐次載入使用者
+    private final boolean statelessPrincipal;
 
-    // 定義不需要認證的端點
-    private static final List<String> PUBLIC_PATHS = Arrays.asList(
-            "/api/auth/",
-            "/api/users/login",
-            "/api/users/register",
-            "/api/restaurants/popular",
-            "/api/restaurants/latest",
-            "/api/reviews/restaurant",
-            "/api/restaurants", // 添加公開的餐廳列表
-            "/api/restaurants/{id}", // 添加公開的單個餐廳
-            "/api/reviews/restaurant/{restaurantId}", // 添加公開的餐廳評論
-            "/api/images/" // 添加公開的圖片 API
-    );
-
-    // 定義需要認證的端點
-    private static final List<String> PROTECTED_PATHS = Arrays.asList(
-            "/api/restaurants/favorites",
-            "/api/restaurants/\\d+/favorite",
-            "/api/users/\\d+", // 添加用戶資料
-            "/api/users/\\d+/favorites", // 添加用戶收藏
-            "/api/users/\\d+/reviews", // 添加用戶評論
-            "/api/users/\\d+/restaurants", // 添加用戶創建的餐廳
-            "/api/reviews/restaurant/\\d+", // 添加評論相關
-            "/api/reviews/\\d+/like" // 添加按讚相關
-    );
-
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService,
+                                   TokenVersionCache tokenVersionCache, SecurityRoutes securityRoutes,
+                                   @Value("${jwt.stateless-principal:true}") boolean statelessPrincipal) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.securityRoutes = securityRoutes;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.statelessPrincipal = statelessPrincipal;
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        String servletPath = request.getServletPath();
-        String pathInfo = request.getPathInfo();
-        String method = request.getMethod();
-
-        // 直接放行圖片 API（同時判斷 getRequestURI 與 getServletPath）
-        if (path.startsWith("/api/images/") || (servletPath != null && servletPath.startsWith("/api/images/"))) {
-            return true;
-        }
+        RouteAccess access = securityRoutes.classify(request).access();
 
-        // 登入和註冊請求不需要認證
-        if (path.equals("/api/users/login") || path.equals("/api/users/register")) {
+        // 圖片 API 一律不經過認證
+        if (access == RouteAccess.IMAGE_BYPASS) {
             return true;
         }
 
-        // 首先檢查是否是受保護的端點
-        boolean isProtectedPath = PROTECTED_PATHS.stream()
-                .anyMatch(pattern -> path.matches(pattern));
-        if (isProtectedPath) {
-            return false;
-        }
-
-        // 檢查是否是公開的 GET 請求
-        if (method.equals(HttpMethod.GET.name())) { // 首先判斷是否為 GET 請求
-            // 檢查是否是公開的餐廳列表或評論
-            if (path.equals("/api/restaurants") || // 餐廳列表
-                    (path.startsWith("/api/restaurants/") && // 餐廳相關路徑
-                            !path.equals("/api/restaurants/favorites") && // 排除收藏列表
-                            !path.matches("/api/restaurants/\\d+"))
-                    || // 排除單個餐廳詳情
-                    path.startsWith("/api/reviews/restaurant/") || // 餐廳評論
-                    PUBLIC_PATHS.stream().anyMatch(path::startsWith)) { // 其他公開路徑
-                return true; // 如果是公開路徑，跳過認證
-            }
-        }
-        return false;
+        // 公開端點若帶有 token，仍進入過濾器做可選認證（例如判斷評論是否已按讚）
+        return access == RouteAccess.PUBLIC && !StringUtils.hasText(getJwtFromRequest(request));
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        String path = request.getRequestURI();
-        String servletPath = request.getServletPath();
-        String pathInfo = request.getPathInfo();
+        RouteAccess access = securityRoutes.classify(request).access();
         // 圖片 API 直接放行，不做任何認證
-        if (path.startsWith("/api/images/") || (servletPath != null && servletPath.startsWith("/api/images/"))) {
+        if (access == RouteAccess.IMAGE_BYPASS) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // 公開端點：token 有效就建立認證，無效則以匿名身分繼續，不回傳 401
+        if (access == RouteAccess.PUBLIC) {
+            try {
+                String jwt = getJwtFromRequest(request);
+                Claims claims = StringUtils.hasText(jwt) ? jwtTokenProvider.parseClaims(jwt) : null;
+                if (claims != null) {
+                    authenticate(request, claims);
+                }
+            } catch (Exception ex) {
+                SecurityContextHolder.clearContext();
+            }
             filterChain.doFilter(request, response);
             return;
         }
-        String method = request.getMethod();
 
         try {
             String jwt = getJwtFromRequest(request);
             if (StringUtils.hasText(jwt)) {
-                if (jwtTokenProvider.validateToken(jwt)) {
-                    String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                    String role = jwtTokenProvider.getRoleFromToken(jwt);
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                // 每個請求只驗證一次 token，後續都使用同一份 claims
+                Claims claims = jwtTokenProvider.parseClaims(jwt);
+                if (claims != null) {
+                    authenticate(request, claims);
                 } else {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.setContentType("application/json");
@@ -149,15 +114,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private boolean requiresAuthentication(String path, String method) {
-        // 收藏相關的端點需要認證
-        if (path.matches("/api/restaurants/\\d+/favorite") &&
-                (method.equals(HttpMethod.POST.name()) || method.equals(HttpMethod.DELETE.name()))) {
-            return true;
+    // 依已驗證的 claims 建立使用者主體並寫入 SecurityContext
+    private void authenticate(HttpServletRequest request, Claims claims) {
+        UserDetails userDetails = statelessPrincipal ? jwtTokenProvider.getPrincipalFromClaims(claims) : null;
+        if (userDetails != null) {
+            // 權杖版本已遞增（例如改過密碼）的舊 token 視為失效
+            User principal = (User) userDetails;
+            if (!tokenVersionCache.isCurrent(principal.getId(), principal.getTokenVersion())) {
+                throw new BadCredentialsException("Token revoked");
+            }
+        } else {
+            // 關閉無狀態模式或舊版 token 缺少必要 claims 時，改由資料庫載入使用者
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
         }
-
-        // 其他需要認證的端點
-        return !PUBLIC_PATHS.stream().anyMatch(path::startsWith);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 
     private void handleAuthenticationError(HttpServletResponse response, String error, String message)
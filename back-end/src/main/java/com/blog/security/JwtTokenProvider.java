@@ -1,25 +1,30 @@
 package com.blog.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.security.core.GrantedAuthority;
+import com.blog.model.Role;
 import com.blog.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import jakarta.annotation.PostConstruct;
 
 /**
@@ -41,7 +46,26 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // 已驗證 claims 快取的筆數上限（超過時以 second-chance 近似最久未使用淘汰）
+    @Value("${jwt.claims-cache.max-entries:10000}")
+    private int claimsCacheMaxEntries;
+
     private SecretKey key;
+    // 解析器不可變且可共用，啟動時建立一次
+    private JwtParser parser;
+    // token 摘要 -> 已驗證的 claims；每個請求都會讀取，讀取不加鎖，只在命中時標記最近使用過
+    private final Map<String, CachedClaims> verifiedClaims = new ConcurrentHashMap<>();
+    // 同一時間只由一個執行緒進行淘汰，其他執行緒照常寫入（筆數可能短暫略超過上限）
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private static final class CachedClaims {
+        private final Claims claims;
+        private volatile boolean referenced;
+
+        private CachedClaims(Claims claims) {
+            this.claims = claims;
+        }
+    }
 
     @PostConstruct
     public void init() {
@@ -49,6 +73,7 @@ public class JwtTokenProvider {
             throw new IllegalStateException("JWT secret key cannot be null or empty");
         }
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     // 生成 JWT
@@ -63,6 +88,7 @@ public class JwtTokenProvider {
         if (userDetails instanceof User) {
             User user = (User) userDetails;
             claims.put("userId", user.getId());
+            claims.put("ver", user.getTokenVersion());
         }
         String token = Jwts.builder()
                 .setClaims(claims)
@@ -74,58 +100,113 @@ public class JwtTokenProvider {
         return token;
     }
 
-    // 從 JWT 獲取用戶名稱
+    // 從 JWT 獲取用戶名稱（token 無效時拋出 JwtException）
     public String getUsernameFromToken(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            String username = claims.getSubject();
-            String role = claims.get("role", String.class);
-            return username;
-        } catch (ExpiredJwtException e) {
-            throw e;
-        } catch (Exception e) {
-            throw e;
+        Claims claims = parseClaims(token);
+        if (claims == null) {
+            throw new JwtException("Invalid token");
         }
+        return claims.getSubject();
     }
 
     // 驗證 JWT 是否有效
     public boolean validateToken(String token) {
+        return parseClaims(token) != null;
+    }
+
+    // 驗證一次並回傳 claims；無效或已過期回傳 null。
+    // 同一 token 驗證過後以摘要為 key 快取到 token 到期為止，之後的請求不必再驗簽
+    public Claims parseClaims(String token) {
+        if (token == null) {
+            return null;
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        CachedClaims cached = verifiedClaims.get(digest);
+        if (cached != null) {
+            if (cached.claims.getExpiration().getTime() > now) {
+                // 已標記時不再寫入，避免熱門 token 在多核心間反覆寫同一個欄位
+                if (!cached.referenced) {
+                    cached.referenced = true;
+                }
+                return cached.claims;
+            }
+            verifiedClaims.remove(digest, cached);
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        // 沒有到期時間的 token 不快取，避免永久留在快取中
+        if (claims.getExpiration() != null) {
+            if (verifiedClaims.size() >= claimsCacheMaxEntries) {
+                evictClaims(now);
+            }
+            verifiedClaims.put(digest, new CachedClaims(claims));
+        }
+        return claims;
+    }
+
+    // second-chance 淘汰：移除已過期或上次掃描後沒被讀取的項目，被讀取過的清除標記保留到下一輪；
+    // 一次清到上限的九成，避免每次寫入都觸發掃描。最多掃兩輪，第二輪必定能清出空間
+    private void evictClaims(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            String username = claims.getSubject();
-            String role = claims.get("role", String.class);
-            return true;
-        } catch (ExpiredJwtException e) {
-            return false;
-        } catch (MalformedJwtException e) {
-            return false;
-        } catch (SignatureException e) {
-            return false;
-        } catch (Exception e) {
-            return false;
+            int target = claimsCacheMaxEntries - Math.max(1, claimsCacheMaxEntries / 10);
+            for (int pass = 0; pass < 2 && verifiedClaims.size() > target; pass++) {
+                Iterator<CachedClaims> iterator = verifiedClaims.values().iterator();
+                while (iterator.hasNext() && verifiedClaims.size() > target) {
+                    CachedClaims entry = iterator.next();
+                    if (entry.referenced && entry.claims.getExpiration().getTime() > now) {
+                        entry.referenced = false;
+                    } else {
+                        iterator.remove();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
         }
     }
 
+    // 由已驗證的 claims 直接建立使用者主體，不查資料庫；缺少 userId 或角色（舊版 token）時回傳 null
+    public User getPrincipalFromClaims(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null || !role.startsWith("ROLE_")) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId.longValue());
+        user.setUsername(claims.getSubject());
+        try {
+            user.setRole(Role.valueOf(role.substring("ROLE_".length())));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Number version = claims.get("ver", Number.class);
+        user.setTokenVersion(version == null ? 0 : version.intValue());
+        return user;
+    }
+
     // 從 token 獲取角色
     public String getRoleFromToken(String token) {
+        Claims claims = parseClaims(token);
+        return claims == null ? null : claims.get("role", String.class);
+    }
+
+    private static String digest(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            String role = claims.get("role", String.class);
-            return role;
-        } catch (Exception e) {
-            return null;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
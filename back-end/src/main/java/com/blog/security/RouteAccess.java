@@ -0,0 +1,18 @@
+package com.blog.security;
+
+/**
+ * Class Name: RouteAccess
+ * Package: com.blog.security
+ * Description: 路由的認證分類
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public enum RouteAccess {
+    // 公開端點；帶有 token 時仍做可選認證（例如判斷評論是否已按讚）
+    PUBLIC,
+    // 需要有效的 token，可再限定角色
+    AUTHENTICATED,
+    // 圖片 API，完全不經過 JWT 過濾器
+    IMAGE_BYPASS
+}
@@ -0,0 +1,186 @@
+package com.blog.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class Name: RouteTable
+ * Package: com.blog.security
+ * Description: 宣告式路由表，啟動時編譯成以路徑片段為節點的 trie；依 HTTP 方法與路徑一次走訪即可分類，過程不配置物件
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class RouteTable {
+
+    // 路徑樣式語法：字面片段、{name}（僅限數字 ID）、*（任一片段）、**（其餘所有片段，可為空，僅能在結尾）
+    private static final String PARAM_PREFIX = "{";
+    private static final String SINGLE_WILDCARD = "*";
+    private static final String MULTI_WILDCARD = "**";
+
+    private final Node root;
+    private final Route fallback;
+
+    private RouteTable(Node root, Route fallback) {
+        this.root = root;
+        this.fallback = fallback;
+    }
+
+    // 一條路由規則；method 為 null 表示不限方法，roles 為空表示只需登入
+    public record Route(String method, String pattern, RouteAccess access, List<String> roles) {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // 依方法與路徑找出最具體的規則：字面片段優先於數字參數，再來是 *，最後是 **；
+    // 同一節點上指定方法的規則優先於不限方法的規則。都不符合時回傳預設規則
+    public Route classify(String method, String path) {
+        Route route = match(root, method, path, skipSlashes(path, 0));
+        return route != null ? route : fallback;
+    }
+
+    private static Route match(Node node, String method, String path, int start) {
+        if (start >= path.length()) {
+            Route route = node.find(method);
+            if (route != null) {
+                return route;
+            }
+            // ** 也可以匹配零個片段
+            return node.multiWildcard != null ? node.multiWildcard.find(method) : null;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = skipSlashes(path, end);
+        int length = end - start;
+
+        for (Node child : node.literals) {
+            if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                Route route = match(child, method, path, next);
+                if (route != null) {
+                    return route;
+                }
+                break;
+            }
+        }
+        if (node.param != null && isDigits(path, start, end)) {
+            Route route = match(node.param, method, path, next);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.singleWildcard != null) {
+            Route route = match(node.singleWildcard, method, path, next);
+            if (route != null) {
+                return route;
+            }
+        }
+        return node.multiWildcard != null ? node.multiWildcard.find(method) : null;
+    }
+
+    private static int skipSlashes(String path, int index) {
+        while (index < path.length() && path.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigits(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+        private final String segment;
+        private final List<Node> literals = new ArrayList<>();
+        private Node param;
+        private Node singleWildcard;
+        private Node multiWildcard;
+        private final Map<String, Route> byMethod = new HashMap<>();
+        private Route anyMethod;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Route find(String method) {
+            Route route = byMethod.get(method);
+            return route != null ? route : anyMethod;
+        }
+
+        private Node child(String segment) {
+            if (segment.equals(MULTI_WILDCARD)) {
+                return multiWildcard != null ? multiWildcard : (multiWildcard = new Node(segment));
+            }
+            if (segment.equals(SINGLE_WILDCARD)) {
+                return singleWildcard != null ? singleWildcard : (singleWildcard = new Node(segment));
+            }
+            if (segment.startsWith(PARAM_PREFIX)) {
+                return param != null ? param : (param = new Node(segment));
+            }
+            for (Node literal : literals) {
+                if (literal.segment.equals(segment)) {
+                    return literal;
+                }
+            }
+            Node literal = new Node(segment);
+            literals.add(literal);
+            return literal;
+        }
+    }
+
+    public static final class Builder {
+        private final Node root = new Node("");
+        private Route fallback = new Route(null, "/**", RouteAccess.AUTHENTICATED, List.of());
+
+        private Builder() {
+        }
+
+        public Builder route(String method, String pattern, RouteAccess access, String... roles) {
+            Route route = new Route(method, pattern, access, List.of(roles));
+            Node node = root;
+            String[] segments = pattern.split("/");
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (segment.equals(MULTI_WILDCARD) && i != segments.length - 1) {
+                    throw new IllegalArgumentException("** 只能出現在路徑結尾: " + pattern);
+                }
+                node = node.child(segment);
+            }
+            Route existing = method == null ? node.anyMethod : node.byMethod.get(method);
+            if (existing != null) {
+                throw new IllegalArgumentException("重複的路由規則: " + (method == null ? "*" : method) + " " + pattern);
+            }
+            if (method == null) {
+                node.anyMethod = route;
+            } else {
+                node.byMethod.put(method, route);
+            }
+            return this;
+        }
+
+        // 沒有任何規則符合時的分類
+        public Builder otherwise(RouteAccess access, String... roles) {
+            this.fallback = new Route(null, "/**", access, List.of(roles));
+            return this;
+        }
+
+        public RouteTable build() {
+            return new RouteTable(root, fallback);
+        }
+    }
+}
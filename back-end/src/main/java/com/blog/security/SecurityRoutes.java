@@ -0,0 +1,92 @@
+package com.blog.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import static com.blog.security.RouteAccess.AUTHENTICATED;
+import static com.blog.security.RouteAccess.IMAGE_BYPASS;
+import static com.blog.security.RouteAccess.PUBLIC;
+
+/**
+ * Class Name: SecurityRoutes
+ * Package: com.blog.security
+ * Description: 全站唯一的認證路由表，JwtAuthenticationFilter 與 SecurityConfig 共用同一份分類
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Component
+public class SecurityRoutes {
+
+    private static final String ANY = null;
+
+    private final RouteTable table = RouteTable.builder()
+            // 圖片 API 一律不經過認證（快取與縮圖統計除外）
+            .route(ANY, "/api/images/**", IMAGE_BYPASS)
+            .route("GET", "/api/images/cache-stats", AUTHENTICATED, "ADMIN")
+            .route("GET", "/api/images/variant-stats", AUTHENTICATED, "ADMIN")
+
+            // 公開端點
+            .route(ANY, "/api/auth/**", PUBLIC)
+            .route(ANY, "/api/users/login", PUBLIC)
+            .route(ANY, "/api/users/register", PUBLIC)
+            .route("GET", "/api/restaurants/**", PUBLIC)
+            .route("GET", "/api/reviews/restaurant/**", PUBLIC)
+
+            // 使用者資料
+            .route("GET", "/api/users/{userId}", AUTHENTICATED, "REVIEWER")
+            .route("GET", "/api/users/{userId}/favorites", AUTHENTICATED, "REVIEWER")
+            .route("GET", "/api/users/{userId}/reviews", AUTHENTICATED, "REVIEWER")
+            .route("GET", "/api/users/{userId}/restaurants", AUTHENTICATED, "REVIEWER")
+
+            // 評論相關的端點
+            .route(ANY, "/api/reviews/restaurant/{restaurantId}", AUTHENTICATED)
+            .route("POST", "/api/reviews/restaurant/{restaurantId}", AUTHENTICATED, "REVIEWER")
+            .route("PUT", "/api/reviews/{reviewId}", AUTHENTICATED, "REVIEWER")
+            .route("DELETE", "/api/reviews/{reviewId}", AUTHENTICATED, "REVIEWER", "ADMIN")
+            .route(ANY, "/api/reviews/{reviewId}/like", AUTHENTICATED)
+            .route("POST", "/api/reviews/{reviewId}/like", AUTHENTICATED, "REVIEWER")
+            .route("DELETE", "/api/reviews/{reviewId}/like", AUTHENTICATED, "REVIEWER")
+
+            // 餐廳相關的端點
+            .route("POST", "/api/restaurants", AUTHENTICATED, "REVIEWER")
+            .route("PUT", "/api/restaurants/{id}", AUTHENTICATED, "REVIEWER")
+            .route("DELETE", "/api/restaurants/{id}", AUTHENTICATED, "REVIEWER", "ADMIN")
+            .route(ANY, "/api/restaurants/favorites", AUTHENTICATED)
+            .route(ANY, "/api/restaurants/{id}/favorite", AUTHENTICATED)
+            .route("POST", "/api/restaurants/{id}/favorite", AUTHENTICATED, "REVIEWER")
+            .route("DELETE", "/api/restaurants/{id}/favorite", AUTHENTICATED, "REVIEWER")
+
+            // 其他請求都需要登入
+            .otherwise(AUTHENTICATED)
+            .build();
+
+    public RouteTable.Route classify(HttpServletRequest request) {
+        return table.classify(request.getMethod(), request.getRequestURI());
+    }
+
+    // 依路由規則判斷目前的認證是否可存取
+    public boolean isAllowed(RouteTable.Route route, Authentication authentication) {
+        if (route.access() != AUTHENTICATED) {
+            return true;
+        }
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return false;
+        }
+        if (route.roles().isEmpty()) {
+            return true;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (String role : route.roles()) {
+                if (authority.getAuthority().equals("ROLE_" + role)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package com.blog.security;
+
+import com.blog.repository.UserRepository;
+import com.blog.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: TokenVersionCache
+ * Package: com.blog.security
+ * Description: 使用者權杖版本的短期快取，讓 JWT 驗證時不必每個請求都查資料庫，又能讓舊權杖在短時間內失效
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Component
+public class TokenVersionCache {
+
+    // 快取筆數上限，超過時整批清空（重新查詢的代價只是每位使用者一次查詢）
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+
+    // 使用者 ID -> 權杖版本與過期時間；-1 表示使用者不存在
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public TokenVersionCache(UserRepository userRepository,
+                             @Value("${jwt.version-cache-ttl-ms:30000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    private record Entry(int version, long expiresAt) {
+    }
+
+    // JWT 內的版本是否仍是使用者目前的版本
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry == null || entry.expiresAt() <= now) {
+            int version = userRepository.findTokenVersionById(userId).orElse(-1);
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+            entry = new Entry(version, now + ttlMillis);
+            entries.put(userId, entry);
+        }
+        return entry.version() == tokenVersion;
+    }
+
+    // 版本遞增的交易提交後移除快取，本機立即生效；其他節點最慢在 TTL 後生效
+    public void evictAfterCommit(Long userId) {
+        TransactionUtils.runAfterCommit(() -> entries.remove(userId));
+    }
+}
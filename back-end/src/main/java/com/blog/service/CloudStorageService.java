@@ -1,58 +1,60 @@
 package com.blog.service;
 
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import com.blog.exception.ValidationException;
+import com.blog.util.ImageTypeDetector;
+import com.blog.util.SizeLimitedInputStream;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class CloudStorageService {
 
-  @Value("${GOOGLE_CLOUD_PROJECT}")
-  private String projectId;
-
-  @Value("${BUCKET_NAME}")
-  private String bucketName;
+  // 共用的儲存後端（Cloud Storage 或記憶體），不再每次請求建立新的用戶端
+  private final StorageBackend storageBackend;
+  // 本機磁碟上的圖片快取
+  private final DiskImageCache diskImageCache;
 
   private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
-  private static final String[] ALLOWED_CONTENT_TYPES = {
-      "image/jpeg",
-      "image/png",
-      "image/gif"
-  };
+  // 讀取上傳串流的緩衝大小，檔頭判斷也在第一個區塊內完成
+  private static final int UPLOAD_BUFFER_SIZE = 16 * 1024;
+
+  public CloudStorageService(StorageBackend storageBackend, DiskImageCache diskImageCache) {
+    this.storageBackend = storageBackend;
+    this.diskImageCache = diskImageCache;
+  }
 
   public String uploadImage(MultipartFile file) throws IOException {
     // 驗證文件
     validateFile(file);
 
-    try {
-      // 初始化 Storage 服務
-      Storage storage = StorageOptions.newBuilder()
-          .setProjectId(projectId)
-          .build()
-          .getService();
-
-      // 生成唯一的文件名
-      String fileName = UUID.randomUUID().toString() + "-" + file.getOriginalFilename();
-
-      // 創建 BlobId 和 BlobInfo
-      BlobId blobId = BlobId.of(bucketName, fileName);
-      BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-          .setContentType(file.getContentType())
-          .build();
+    // 生成唯一的文件名
+    String fileName = UUID.randomUUID().toString() + "-" + file.getOriginalFilename();
+
+    // 直接從上傳串流寫入儲存後端，不把整個檔案讀進記憶體；
+    // 宣告的大小不可信，讀取途中超過上限就中止
+    try (InputStream in = new BufferedInputStream(
+        new SizeLimitedInputStream(file.getInputStream(), MAX_FILE_SIZE), UPLOAD_BUFFER_SIZE)) {
+      // 依檔頭判斷格式，不採信用戶端送來的 Content-Type
+      String contentType = ImageTypeDetector.detect(in);
+      if (contentType == null) {
+        throw new ValidationException("只允許上傳 JPG、PNG 或 GIF 格式的圖片");
+      }
 
-      // 上傳文件到 Cloud Storage
-      storage.create(blobInfo, file.getBytes());
+      // 上傳文件到儲存後端
+      storageBackend.write(fileName, contentType, in);
 
       // 返回公開訪問的 URL
-      return "https://storage.googleapis.com/" + bucketName + "/" + fileName;
+      return storageBackend.publicUrl(fileName);
+    } catch (SizeLimitedInputStream.LimitExceededException e) {
+      throw new ValidationException("圖片大小不能超過5MB");
+    } catch (ValidationException e) {
+      throw e;
     } catch (Exception e) {
       throw new ValidationException("圖片上傳失敗：" + e.getMessage());
     }
@@ -63,20 +65,34 @@ public class CloudStorageService {
       // 從 URL 中提取文件名
       String fileName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
 
-      // 初始化 Storage 服務
-      Storage storage = StorageOptions.newBuilder()
-          .setProjectId(projectId)
-          .build()
-          .getService();
-
       // 刪除文件
-      BlobId blobId = BlobId.of(bucketName, fileName);
-      storage.delete(blobId);
+      storageBackend.delete(fileName);
+      diskImageCache.evict(fileName);
     } catch (Exception e) {
       throw new ValidationException("圖片刪除失敗：" + e.getMessage());
     }
   }
 
+  // 圖片的中繼資料與本機快取檔（先查磁碟快取，未命中才向儲存後端下載）；不存在時回傳 null
+  public DiskImageCache.CachedImage lookupImage(String fileName) {
+    return diskImageCache.lookup(fileName);
+  }
+
+  // 記錄圖片實際送出的位元組數
+  public void recordImageBytesServed(long bytes, boolean fromCache) {
+    diskImageCache.recordBytesServed(bytes, fromCache);
+  }
+
+  // 磁碟快取統計
+  public Map<String, Object> getImageCacheStats() {
+    return diskImageCache.stats();
+  }
+
+  // 以串流讀取圖片的指定範圍，由呼叫端關閉
+  public InputStream openImage(String fileName, long offset, long length) throws IOException {
+    return storageBackend.open(fileName, offset, length);
+  }
+
   private void validateFile(MultipartFile file) {
     if (file == null || file.isEmpty()) {
       throw new ValidationException("請選擇要上傳的圖片");
@@ -85,18 +101,5 @@ public class CloudStorageService {
     if (file.getSize() > MAX_FILE_SIZE) {
       throw new ValidationException("圖片大小不能超過5MB");
     }
-
-    String contentType = file.getContentType();
-    boolean isAllowedType = false;
-    for (String allowedType : ALLOWED_CONTENT_TYPES) {
-      if (allowedType.equals(contentType)) {
-        isAllowedType = true;
-        break;
-      }
-    }
-
-    if (!isAllowedType) {
-      throw new ValidationException("只允許上傳 JPG、PNG 或 GIF 格式的圖片");
-    }
   }
-}
\ No newline at end of file
+}
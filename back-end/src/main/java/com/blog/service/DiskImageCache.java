@@ -0,0 +1,244 @@
+package com.blog.service;
+
+import com.blog.util.SingleFlight;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Class Name: DiskImageCache
+ * Package: com.blog.service
+ * Description: 圖片的本機磁碟 LRU 快取層，依總位元組數設上限；未命中時由儲存後端下載，同一檔案同時只下載一次
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class DiskImageCache {
+  private static final Logger log = LoggerFactory.getLogger(DiskImageCache.class);
+
+  private final StorageBackend storageBackend;
+  private final boolean enabled;
+  private final Path directory;
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final long deleteDelayMillis;
+  private final SingleFlight<String, CachedImage> loads;
+
+  // 物件名稱 -> 快取檔案；accessOrder = true，超過容量時淘汰最久未使用的（以 index 為鎖）
+  private final LinkedHashMap<String, CachedImage> index = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  // 被淘汰或移除的檔案延後刪除。Tomcat sendfile 在 servlet 結束後才依路徑開檔，
+  // 立即刪除會讓已送出 Content-Length 的回應被截斷；檔案開啟後再刪除不影響讀取，
+  // 所以只需涵蓋從 lookup 到開檔之間的時間。每次下載的檔名都不同，延後刪除不會誤刪新檔
+  private final ConcurrentLinkedQueue<PendingDelete> pendingDeletes = new ConcurrentLinkedQueue<>();
+
+  private record PendingDelete(Path file, long dueAt) {
+  }
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder bytesFromCache = new LongAdder();
+  private final LongAdder bytesFromBackend = new LongAdder();
+
+  public DiskImageCache(StorageBackend storageBackend,
+                        @Value("${storage.disk-cache.enabled:true}") boolean enabled,
+                        @Value("${storage.disk-cache.dir:data/image-cache}") String directory,
+                        @Value("${storage.disk-cache.max-bytes:67108864}") long maxBytes,
+                        @Value("${storage.disk-cache.max-entry-bytes:5242880}") long maxEntryBytes,
+                        @Value("${storage.disk-cache.load-timeout-ms:30000}") long loadTimeoutMillis,
+                        @Value("${storage.disk-cache.delete-delay-ms:60000}") long deleteDelayMillis) {
+    this.storageBackend = storageBackend;
+    this.enabled = enabled;
+    this.directory = Path.of(directory);
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    this.deleteDelayMillis = deleteDelayMillis;
+    this.loads = new SingleFlight<>(loadTimeoutMillis);
+  }
+
+  // 查詢結果：info 為檔案資訊；file 為本機快取檔，無法快取（停用、檔案過大或寫入失敗）時為 null
+  public record CachedImage(StoredObject info, Path file) {
+  }
+
+  // 索引只存在記憶體中，啟動時清掉上次留下的檔案
+  @PostConstruct
+  public void init() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(DiskImageCache::deleteQuietly);
+    }
+  }
+
+  // 取得圖片：命中時直接回傳本機檔案；未命中時下載到磁碟後回傳。圖片不存在時回傳 null
+  public CachedImage lookup(String name) {
+    if (enabled) {
+      CachedImage cached;
+      synchronized (index) {
+        cached = index.get(name);
+      }
+      // 檔案被外部刪除時視為未命中
+      if (cached != null && Files.isReadable(cached.file())) {
+        hits.increment();
+        return cached;
+      }
+    }
+    misses.increment();
+    return loads.load(name, () -> download(name));
+  }
+
+  // 圖片被刪除時一併移除快取
+  public void evict(String name) {
+    CachedImage removed;
+    synchronized (index) {
+      removed = index.remove(name);
+      if (removed != null) {
+        totalBytes -= removed.info().size();
+      }
+    }
+    if (removed != null) {
+      scheduleDelete(removed.file());
+    }
+  }
+
+  // 刪除已到期的待刪檔案（佇列依加入順序排列，到期時間也依序遞增）
+  @Scheduled(fixedDelayString = "${storage.disk-cache.delete-sweep-ms:10000}")
+  public void deleteExpired() {
+    long now = System.currentTimeMillis();
+    PendingDelete head;
+    while ((head = pendingDeletes.peek()) != null && head.dueAt() <= now) {
+      pendingDeletes.poll();
+      deleteQuietly(head.file());
+    }
+  }
+
+  // 記錄實際送出的位元組數（fromCache 表示由本機檔案送出）
+  public void recordBytesServed(long bytes, boolean fromCache) {
+    (fromCache ? bytesFromCache : bytesFromBackend).add(bytes);
+  }
+
+  public Map<String, Object> stats() {
+    int entries;
+    long bytes;
+    synchronized (index) {
+      entries = index.size();
+      bytes = totalBytes;
+    }
+    long hitCount = hits.sum();
+    long missCount = misses.sum();
+    long requests = hitCount + missCount;
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("entries", entries);
+    stats.put("bytes", bytes);
+    stats.put("maxBytes", maxBytes);
+    stats.put("hits", hitCount);
+    stats.put("misses", missCount);
+    stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+    stats.put("evictions", evictions.sum());
+    stats.put("pendingDeletes", pendingDeletes.size());
+    stats.put("bytesServedFromCache", bytesFromCache.sum());
+    stats.put("bytesServedFromBackend", bytesFromBackend.sum());
+    stats.put("singleFlight", loads.stats());
+    return stats;
+  }
+
+  private CachedImage download(String name) {
+    StoredObject info = storageBackend.stat(name);
+    if (info == null) {
+      return null;
+    }
+    if (!enabled || info.size() > maxEntryBytes) {
+      return new CachedImage(info, null);
+    }
+
+    // 每次下載使用新的檔名，被取代或淘汰的舊檔可以安全地延後刪除
+    Path file = directory.resolve(fileKey(name) + "-" + UUID.randomUUID());
+    Path temp = null;
+    try {
+      // 先寫暫存檔再搬移，讀取端不會看到寫到一半的檔案
+      temp = Files.createTempFile(directory, "image", ".tmp");
+      try (InputStream in = storageBackend.open(name, 0, info.size())) {
+        Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("無法快取圖片 {}: {}", name, e.getMessage());
+      if (temp != null) {
+        deleteQuietly(temp);
+      }
+      return new CachedImage(info, null);
+    }
+
+    CachedImage cached = new CachedImage(info, file);
+    synchronized (index) {
+      CachedImage previous = index.put(name, cached);
+      if (previous != null) {
+        totalBytes -= previous.info().size();
+        scheduleDelete(previous.file());
+      }
+      totalBytes += info.size();
+      evictOverflow();
+    }
+    return cached;
+  }
+
+  // 超過容量時由最久未使用的開始淘汰（最新放入的一定在尾端，不會被淘汰）；檔案延後刪除
+  private void evictOverflow() {
+    Iterator<Map.Entry<String, CachedImage>> iterator = index.entrySet().iterator();
+    while (totalBytes > maxBytes && index.size() > 1 && iterator.hasNext()) {
+      CachedImage eldest = iterator.next().getValue();
+      iterator.remove();
+      totalBytes -= eldest.info().size();
+      evictions.increment();
+      scheduleDelete(eldest.file());
+    }
+  }
+
+  private void scheduleDelete(Path file) {
+    pendingDeletes.add(new PendingDelete(file, System.currentTimeMillis() + deleteDelayMillis));
+  }
+
+  // 物件名稱來自網址，以雜湊值作為檔名避免路徑穿越
+  private static String fileKey(String name) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("無法刪除快取檔案 {}: {}", path, e.getMessage());
+    }
+  }
+}
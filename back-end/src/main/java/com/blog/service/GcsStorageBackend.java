@@ -0,0 +1,92 @@
+package com.blog.service;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Class Name: GcsStorageBackend
+ * Package: com.blog.service
+ * Description: 以共用的 Storage 用戶端存取 Google Cloud Storage bucket
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public class GcsStorageBackend implements StorageBackend {
+
+  // 每次向 GCS 讀取的區塊大小，決定單一下載佔用的緩衝記憶體
+  private static final int READ_CHUNK_SIZE = 256 * 1024;
+  // 每次上傳到 GCS 的區塊大小（須為 256KB 的倍數）；寫入通道預設會緩衝 16MB，並行上傳時很占記憶體
+  private static final int WRITE_CHUNK_SIZE = 256 * 1024;
+  // 從上傳串流複製到寫入通道的緩衝大小
+  private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+  // Storage 用戶端是執行緒安全的，整個應用程式共用一個（連線與認證都會重複使用）
+  private final Storage storage;
+  private final String bucketName;
+
+  public GcsStorageBackend(Storage storage, String bucketName) {
+    this.storage = storage;
+    this.bucketName = bucketName;
+  }
+
+  @Override
+  public void write(String name, String contentType, InputStream content) throws IOException {
+    BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, name))
+        .setContentType(contentType)
+        .build();
+    WriteChannel writer = storage.writer(blobInfo);
+    writer.setChunkSize(WRITE_CHUNK_SIZE);
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    int read;
+    while ((read = content.read(buffer)) != -1) {
+      ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+      while (chunk.hasRemaining()) {
+        writer.write(chunk);
+      }
+    }
+    // 只有完整讀完才 close（送出最後一個區塊並建立物件）；
+    // 中途丟出例外時不 close，未完成的 resumable upload 不會產生物件
+    writer.close();
+  }
+
+  @Override
+  public StoredObject stat(String name) {
+    Blob blob = storage.get(BlobId.of(bucketName, name));
+    if (blob == null) {
+      return null;
+    }
+    long lastModified = blob.getUpdateTimeOffsetDateTime() == null
+        ? 0 : blob.getUpdateTimeOffsetDateTime().toInstant().toEpochMilli();
+    // 同名檔案內容變動時 generation 一定會改變，可作為強 ETag
+    return new StoredObject(name, blob.getContentType(), blob.getSize(),
+        String.valueOf(blob.getGeneration()), lastModified);
+  }
+
+  @Override
+  public InputStream open(String name, long offset, long length) throws IOException {
+    ReadChannel reader = storage.reader(BlobId.of(bucketName, name));
+    reader.setChunkSize(READ_CHUNK_SIZE);
+    reader.seek(offset);
+    reader.limit(offset + length);
+    return Channels.newInputStream(reader);
+  }
+
+  @Override
+  public boolean delete(String name) {
+    return storage.delete(BlobId.of(bucketName, name));
+  }
+
+  @Override
+  public String publicUrl(String name) {
+    return "https://storage.googleapis.com/" + bucketName + "/" + name;
+  }
+}
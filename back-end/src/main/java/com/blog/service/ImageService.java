@@ -1,18 +1,43 @@
 package com.blog.service;
 
 import com.blog.exception.ValidationException;
+import com.blog.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @Service
 public class ImageService {
+    private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+
+    private static final int CLEANUP_QUEUE_CAPACITY = 1000;
 
     @Autowired
     private CloudStorageService cloudStorageService;
 
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    // 在背景刪除不再使用的圖片，不占用請求執行緒與資料庫連線；佇列滿時改由呼叫端執行緒刪除
+    private final ThreadPoolExecutor cleanupExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CLEANUP_QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "image-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
     public String uploadImage(MultipartFile file) throws IOException {
         return cloudStorageService.uploadImage(file);
     }
@@ -20,4 +45,45 @@ public class ImageService {
     public void deleteImage(String imageUrl) {
         cloudStorageService.deleteImage(imageUrl);
     }
+
+    // 被取代或移除的圖片（原圖與縮圖）在交易提交後才刪除；交易回滾時保留，資料庫仍指向它們
+    public void deleteImagesAfterCommit(String... imageUrls) {
+        TransactionUtils.runAfterCommit(() -> deleteInBackground(imageUrls));
+    }
+
+    // 已上傳但資料庫寫入失敗的圖片，不會再被引用
+    public void discardStagedImage(String imageUrl) {
+        if (imageUrl != null) {
+            deleteInBackground(imageUrl);
+        }
+    }
+
+    // 交易提交後在背景產生縮圖，完成時以 attach 寫回縮圖網址
+    public void generateVariantsAfterCommit(String imageUrl, Predicate<Map<ImageVariant, String>> attach) {
+        imageVariantService.generateAfterCommit(imageUrl, attach);
+    }
+
+    public Map<String, Object> getVariantStats() {
+        return imageVariantService.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdown();
+    }
+
+    private void deleteInBackground(String... imageUrls) {
+        cleanupExecutor.execute(() -> {
+            for (String imageUrl : imageUrls) {
+                if (imageUrl == null) {
+                    continue;
+                }
+                try {
+                    cloudStorageService.deleteImage(imageUrl);
+                } catch (ValidationException e) {
+                    log.warn("無法刪除圖片 {}: {}", imageUrl, e.getMessage());
+                }
+            }
+        });
+    }
 }
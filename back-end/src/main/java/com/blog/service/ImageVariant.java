@@ -0,0 +1,33 @@
+package com.blog.service;
+
+/**
+ * Class Name: ImageVariant
+ * Package: com.blog.service
+ * Description: 上傳圖片另外產生的縮小版本（列表卡片用的縮圖與詳情頁用的中圖）
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public enum ImageVariant {
+
+  THUMBNAIL(320),
+  MEDIUM(960);
+
+  // 輸出寬度上限（像素），高度依比例縮放，不會放大
+  private final int width;
+
+  ImageVariant(int width) {
+    this.width = width;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  // 縮圖存放在原圖旁邊：uuid-photo.png -> uuid-photo_w320.jpg
+  public String objectName(String originalName, String extension) {
+    int dot = originalName.lastIndexOf('.');
+    String stem = dot > 0 ? originalName.substring(0, dot) : originalName;
+    return stem + "_w" + width + "." + extension;
+  }
+}
@@ -0,0 +1,294 @@
+package com.blog.service;
+
+import com.blog.util.ExifOrientation;
+import com.blog.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Class Name: ImageVariantService
+ * Package: com.blog.service
+ * Description: 上傳後在固定大小的背景執行緒池產生縮圖：原圖只解碼一次，依 EXIF 轉正後輸出不含中繼資料的 JPEG/PNG
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class ImageVariantService {
+  private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+  // 讀取 EXIF 方向時預先讀入的檔頭長度
+  private static final int HEADER_BYTES = 64 * 1024;
+
+  private final StorageBackend storageBackend;
+  private final CloudStorageService cloudStorageService;
+  private final boolean enabled;
+  private final long maxPixels;
+  private final float jpegQuality;
+  private final int queueCapacity;
+  private final ThreadPoolExecutor executor;
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+
+  public ImageVariantService(StorageBackend storageBackend, CloudStorageService cloudStorageService,
+                             @Value("${image.variants.enabled:true}") boolean enabled,
+                             @Value("${image.variants.threads:2}") int threads,
+                             @Value("${image.variants.queue-capacity:100}") int queueCapacity,
+                             @Value("${image.variants.max-pixels:50000000}") long maxPixels,
+                             @Value("${image.variants.jpeg-quality:0.8}") float jpegQuality) {
+    this.storageBackend = storageBackend;
+    this.cloudStorageService = cloudStorageService;
+    this.enabled = enabled;
+    this.maxPixels = maxPixels;
+    this.jpegQuality = jpegQuality;
+    this.queueCapacity = queueCapacity;
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "image-variant-" + threadIndex.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  // 交易提交後排入背景產生縮圖；完成後以 attach 寫回資料庫，
+  // attach 回傳 false（圖片已被更換或刪除）時刪除剛產生的縮圖。佇列已滿時略過，前端仍可使用原圖
+  public void generateAfterCommit(String imageUrl, Predicate<Map<ImageVariant, String>> attach) {
+    if (!enabled || imageUrl == null) {
+      return;
+    }
+    TransactionUtils.runAfterCommit(() -> {
+      try {
+        executor.execute(() -> generate(imageUrl, attach));
+      } catch (RejectedExecutionException e) {
+        rejected.increment();
+        log.warn("縮圖佇列已滿，略過 {}", imageUrl);
+      }
+    });
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("threads", executor.getMaximumPoolSize());
+    stats.put("active", executor.getActiveCount());
+    stats.put("queued", executor.getQueue().size());
+    stats.put("queueCapacity", queueCapacity);
+    stats.put("completed", completed.sum());
+    stats.put("failed", failed.sum());
+    stats.put("rejected", rejected.sum());
+    stats.put("discarded", discarded.sum());
+    return stats;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private void generate(String imageUrl, Predicate<Map<ImageVariant, String>> attach) {
+    String name = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+    Map<ImageVariant, String> urls = new EnumMap<>(ImageVariant.class);
+    try {
+      BufferedImage source = decode(name);
+      if (source == null) {
+        failed.increment();
+        return;
+      }
+      // 有透明度的圖片（PNG、GIF）輸出 PNG，其餘重新壓縮成 JPEG
+      boolean alpha = source.getColorModel().hasAlpha();
+      String extension = alpha ? "png" : "jpg";
+      String contentType = alpha ? "image/png" : "image/jpeg";
+      for (ImageVariant variant : ImageVariant.values()) {
+        BufferedImage resized = resize(source, variant.width(), alpha);
+        byte[] bytes = alpha ? encodePng(resized) : encodeJpeg(resized);
+        String variantName = variant.objectName(name, extension);
+        storageBackend.write(variantName, contentType, new ByteArrayInputStream(bytes));
+        urls.put(variant, storageBackend.publicUrl(variantName));
+      }
+      if (attach.test(urls)) {
+        completed.increment();
+        return;
+      }
+      discarded.increment();
+    } catch (Exception e) {
+      failed.increment();
+      log.warn("無法產生縮圖 {}: {}", name, e.getMessage());
+    }
+    // 失敗或圖片已被更換時，清掉已寫入的縮圖
+    for (String url : urls.values()) {
+      try {
+        cloudStorageService.deleteImage(url);
+      } catch (RuntimeException e) {
+        log.warn("無法刪除縮圖 {}: {}", url, e.getMessage());
+      }
+    }
+  }
+
+  // 只解碼一次；原圖遠大於最大縮圖時在解碼階段就先抽樣，像素數超過上限的圖片不處理
+  private BufferedImage decode(String name) throws IOException {
+    StoredObject info = storageBackend.stat(name);
+    if (info == null) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(storageBackend.open(name, 0, info.size()), HEADER_BYTES)) {
+      in.mark(HEADER_BYTES);
+      byte[] header = in.readNBytes(HEADER_BYTES);
+      in.reset();
+      int orientation = ExifOrientation.read(header, header.length);
+
+      try (ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+        if (!readers.hasNext()) {
+          return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+          // 不讀取中繼資料，輸出的縮圖也就不含 EXIF
+          reader.setInput(imageInput, true, true);
+          int width = reader.getWidth(0);
+          int height = reader.getHeight(0);
+          if ((long) width * height > maxPixels) {
+            log.warn("圖片 {} 像素過多（{}x{}），不產生縮圖", name, width, height);
+            return null;
+          }
+          int displayWidth = orientation >= 5 ? height : width;
+          int largest = 0;
+          for (ImageVariant variant : ImageVariant.values()) {
+            largest = Math.max(largest, variant.width());
+          }
+          ImageReadParam param = reader.getDefaultReadParam();
+          int subsampling = Math.max(1, displayWidth / (largest * 2));
+          param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+          return applyOrientation(reader.read(0, param), orientation);
+        } finally {
+          reader.dispose();
+        }
+      }
+    }
+  }
+
+  // 依 EXIF Orientation（1~8）把影像轉正
+  private static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+    int w = image.getWidth();
+    int h = image.getHeight();
+    AffineTransform transform = switch (orientation) {
+      case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+      case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+      case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+      case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+      case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+      case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+      case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);
+      default -> null;
+    };
+    if (transform == null) {
+      return image;
+    }
+    boolean swap = orientation >= 5;
+    BufferedImage oriented = new BufferedImage(swap ? h : w, swap ? w : h,
+        image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = oriented.createGraphics();
+    try {
+      g.drawImage(image, transform, null);
+    } finally {
+      g.dispose();
+    }
+    return oriented;
+  }
+
+  // 縮小到指定寬度（不放大）；一次縮小超過一半畫質會變差，先逐次減半再縮到目標大小
+  private static BufferedImage resize(BufferedImage source, int maxWidth, boolean alpha) {
+    int targetWidth = Math.min(maxWidth, source.getWidth());
+    int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+    BufferedImage current = source;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    while (width / 2 >= targetWidth) {
+      width /= 2;
+      height = Math.max(1, height / 2);
+      current = draw(current, width, height, alpha);
+    }
+    return draw(current, targetWidth, targetHeight, alpha);
+  }
+
+  private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+    BufferedImage target = new BufferedImage(width, height,
+        alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = target.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      if (!alpha) {
+        // JPEG 沒有透明度，透明區域以白色填滿
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+      }
+      g.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      g.dispose();
+    }
+    return target;
+  }
+
+  private byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+      writer.setOutput(output);
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(jpegQuality);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] encodePng(BufferedImage image) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (!ImageIO.write(image, "png", out)) {
+      throw new IOException("no PNG writer available");
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,72 @@
+package com.blog.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: InMemoryStorageBackend
+ * Package: com.blog.service
+ * Description: 存在記憶體中的儲存後端，供本機開發與上傳下載效能測試使用，不需要 GCP
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+
+  private final Map<String, Entry> objects = new ConcurrentHashMap<>();
+
+  private record Entry(StoredObject info, byte[] content) {
+  }
+
+  @Override
+  public void write(String name, String contentType, InputStream content) throws IOException {
+    // 讀完整個串流才放入，中途失敗時不會留下部分內容
+    byte[] bytes = content.readAllBytes();
+    StoredObject info = new StoredObject(name, contentType, bytes.length, md5(bytes), System.currentTimeMillis());
+    objects.put(name, new Entry(info, bytes));
+  }
+
+  @Override
+  public StoredObject stat(String name) {
+    Entry entry = objects.get(name);
+    return entry == null ? null : entry.info();
+  }
+
+  @Override
+  public InputStream open(String name, long offset, long length) throws FileNotFoundException {
+    Entry entry = objects.get(name);
+    if (entry == null) {
+      throw new FileNotFoundException(name);
+    }
+    // 內容寫入後不再修改，直接以原陣列建立串流，不另外複製
+    int start = (int) Math.min(offset, entry.content().length);
+    int count = (int) Math.min(length, entry.content().length - start);
+    return new ByteArrayInputStream(entry.content(), start, count);
+  }
+
+  @Override
+  public boolean delete(String name) {
+    return objects.remove(name) != null;
+  }
+
+  // 只回傳檔名，前端會轉成 /api/images/{檔名}
+  @Override
+  public String publicUrl(String name) {
+    return name;
+  }
+
+  private static String md5(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 not available", e);
+    }
+  }
+}
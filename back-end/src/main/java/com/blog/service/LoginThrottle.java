@@ -0,0 +1,133 @@
+package com.blog.service;
+
+import com.blog.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: LoginThrottle
+ * Package: com.blog.service
+ * Description: 以記憶體內的滑動時間窗限制每個帳號與每個 IP 的登入、註冊次數，超過時回傳 429
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class LoginThrottle {
+
+    private final SlidingWindow byUsername;
+    private final SlidingWindow byIp;
+
+    public LoginThrottle(@Value("${security.login-throttle.username-max-attempts:10}") int usernameMaxAttempts,
+                         @Value("${security.login-throttle.username-window-ms:300000}") long usernameWindowMillis,
+                         @Value("${security.login-throttle.ip-max-attempts:30}") int ipMaxAttempts,
+                         @Value("${security.login-throttle.ip-window-ms:60000}") long ipWindowMillis) {
+        this.byUsername = new SlidingWindow(usernameMaxAttempts, usernameWindowMillis);
+        this.byIp = new SlidingWindow(ipMaxAttempts, ipWindowMillis);
+    }
+
+    // 單一維度的滑動時間窗：每個 key 保留時間窗內的嘗試時間點
+    private static final class SlidingWindow {
+        private final int maxAttempts;
+        private final long windowMillis;
+        private final Map<String, Deque<Long>> attempts = new ConcurrentHashMap<>();
+
+        private SlidingWindow(int maxAttempts, long windowMillis) {
+            this.maxAttempts = maxAttempts;
+            this.windowMillis = windowMillis;
+        }
+
+        // 仍有額度就記錄這次嘗試並回傳 0，否則回傳需等待的毫秒數
+        long tryAcquire(String key, long now) {
+            Deque<Long> timestamps = attempts.computeIfAbsent(key, k -> new ArrayDeque<>());
+            synchronized (timestamps) {
+                prune(timestamps, now);
+                if (timestamps.size() >= maxAttempts) {
+                    return timestamps.peekFirst() + windowMillis - now;
+                }
+                timestamps.addLast(now);
+                return 0;
+            }
+        }
+
+        void reset(String key) {
+            attempts.remove(key);
+        }
+
+        void evictExpired(long now) {
+            attempts.entrySet().removeIf(entry -> {
+                Deque<Long> timestamps = entry.getValue();
+                synchronized (timestamps) {
+                    prune(timestamps, now);
+                    return timestamps.isEmpty();
+                }
+            });
+        }
+
+        int size() {
+            return attempts.size();
+        }
+
+        private void prune(Deque<Long> timestamps, long now) {
+            while (!timestamps.isEmpty() && timestamps.peekFirst() <= now - windowMillis) {
+                timestamps.pollFirst();
+            }
+        }
+    }
+
+    // 登入前檢查：同一帳號與同一 IP 都必須仍有額度；先檢查帳號，已被帳號限制擋下的請求不再消耗 IP 額度
+    public void checkLogin(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+        reject(byUsername.tryAcquire(usernameKey(username), now));
+        reject(byIp.tryAcquire(ipKey(clientIp), now));
+    }
+
+    // 註冊只依 IP 限制
+    public void checkRegister(String clientIp) {
+        reject(byIp.tryAcquire(ipKey(clientIp), System.currentTimeMillis()));
+    }
+
+    // 登入成功後清除該帳號的嘗試紀錄
+    public void onLoginSuccess(String username) {
+        byUsername.reset(usernameKey(username));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedUsernames", byUsername.size());
+        stats.put("trackedIps", byIp.size());
+        return stats;
+    }
+
+    // 定期清掉已無近期嘗試的 key，避免記憶體持續成長
+    @Scheduled(fixedDelayString = "${security.login-throttle.cleanup-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        byUsername.evictExpired(now);
+        byIp.evictExpired(now);
+    }
+
+    private static void reject(long waitMillis) {
+        if (waitMillis > 0) {
+            long retryAfterSeconds = Math.max(1, (waitMillis + 999) / 1000);
+            throw new TooManyRequestsException("嘗試次數過多，請於 " + retryAfterSeconds + " 秒後再試", retryAfterSeconds);
+        }
+    }
+
+    // 帳號查詢走 MySQL 不分大小寫的定序，"Alice" 與 "alice" 是同一個帳號，計數也必須共用
+    private static String usernameKey(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        return clientIp == null ? "" : clientIp;
+    }
+}
@@ -0,0 +1,207 @@
+package com.blog.service;
+
+import com.blog.dto.RestaurantSummary;
+import com.blog.repository.RestaurantRepository;
+import com.blog.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class Name: PopularRestaurantRanking
+ * Package: com.blog.service
+ * Description: 熱門餐廳排行（整體與各分類的 top-K），評論變動時增量更新並定期由資料庫重新整理
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class PopularRestaurantRanking {
+    private static final Logger log = LoggerFactory.getLogger(PopularRestaurantRanking.class);
+
+    // 對外提供的排行筆數
+    public static final int POPULAR_LIMIT = 10;
+    // 實際保留的候選筆數：多留一些，名次下滑時仍有遞補對象，不必每次都回資料庫查
+    private static final int CANDIDATE_LIMIT = POPULAR_LIMIT * 2;
+
+    // 與資料庫查詢相同的排序：評論數、平均評分、id 皆由大到小
+    private static final Comparator<RestaurantSummary> RANKING = Comparator
+            .comparingInt(RestaurantSummary::getReviewCount)
+            .thenComparing(RestaurantSummary::getAverageRating)
+            .thenComparing(RestaurantSummary::getId)
+            .reversed();
+
+    private final RestaurantRepository restaurantRepository;
+
+    // 整體排行與各分類排行；每次變動都換成新的不可變物件，讀取時不需加鎖
+    private volatile Ranking overall = new Ranking(List.of(), true);
+    private volatile Map<String, Ranking> byCategory = Map.of();
+
+    // 增量更新無法確定前 K 名時只標記，由排程合併成一次背景重建，不在寫入請求的執行緒上查資料庫
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // 同一時間只有一個重建；重建期間被增量更新的餐廳在重建完成後以最新資料重新併入，
+    // 避免較早讀到的資料庫快照蓋掉較新的增量結果
+    private final Object refreshLock = new Object();
+    private final Set<Long> updatedDuringRefresh = ConcurrentHashMap.newKeySet();
+    private volatile boolean refreshing;
+
+    public PopularRestaurantRanking(RestaurantRepository restaurantRepository) {
+        this.restaurantRepository = restaurantRepository;
+    }
+
+    // 一份排行：entries 是確定的前 N 名；complete 表示 entries 已包含該範圍內所有餐廳
+    private record Ranking(List<RestaurantSummary> entries, boolean complete) {
+    }
+
+    // 熱門餐廳（可指定分類），直接回傳已排好的清單
+    public List<RestaurantSummary> getTop(String category) {
+        Ranking ranking = category == null ? overall : byCategory.get(category);
+        if (ranking == null) {
+            return List.of();
+        }
+        List<RestaurantSummary> entries = ranking.entries();
+        return entries.size() > POPULAR_LIMIT ? entries.subList(0, POPULAR_LIMIT) : entries;
+    }
+
+    // 啟動時與定期由資料庫重建排行，修正增量更新無法得知的名次變化
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${restaurant.popular.refresh-ms:300000}",
+            initialDelayString = "${restaurant.popular.refresh-ms:300000}")
+    public void refresh() {
+        synchronized (refreshLock) {
+            dirty.set(false);
+            updatedDuringRefresh.clear();
+            refreshing = true;
+            int categories;
+            try {
+                // 整體排行一次查詢；各分類的前 K 名以視窗函數一次取出 ID，再一次載入摘要，查詢數與分類數無關
+                Ranking newOverall = toRanking(restaurantRepository.findPopularSummaries(
+                        PageRequest.of(0, CANDIDATE_LIMIT)));
+                Map<String, List<RestaurantSummary>> rowsByCategory = new HashMap<>();
+                List<Long> ids = restaurantRepository.findPopularIdsPerCategory(CANDIDATE_LIMIT);
+                if (!ids.isEmpty()) {
+                    for (RestaurantSummary summary : restaurantRepository.findSummariesByIdIn(
+                            ids, null, null, Pageable.unpaged()).getContent()) {
+                        rowsByCategory.computeIfAbsent(summary.getCategory(), c -> new ArrayList<>()).add(summary);
+                    }
+                }
+                Map<String, Ranking> newByCategory = new HashMap<>();
+                rowsByCategory.forEach((category, rows) -> {
+                    rows.sort(RANKING);
+                    newByCategory.put(category, toRanking(rows));
+                });
+                synchronized (this) {
+                    overall = newOverall;
+                    byCategory = Map.copyOf(newByCategory);
+                }
+                categories = newByCategory.size();
+            } finally {
+                refreshing = false;
+            }
+            List<Long> replay = new ArrayList<>(updatedDuringRefresh);
+            updatedDuringRefresh.clear();
+            replay.forEach(this::update);
+            log.debug("熱門餐廳排行已重新整理：{} 個分類，重新併入 {} 間餐廳", categories, replay.size());
+        }
+    }
+
+    // 有排行被標記為需要重建時才執行；多次標記只會觸發一次重建
+    @Scheduled(fixedDelayString = "${restaurant.popular.dirty-check-ms:1000}")
+    public void refreshIfDirty() {
+        if (dirty.get()) {
+            refresh();
+        }
+    }
+
+    // 餐廳新增、評分或基本資料變動後（交易提交後）更新排行
+    public void updateAfterCommit(Long restaurantId) {
+        TransactionUtils.runAfterCommit(() -> update(restaurantId));
+    }
+
+    // 餐廳刪除後（交易提交後）自排行移除
+    public void removeAfterCommit(Long restaurantId) {
+        TransactionUtils.runAfterCommit(() -> update(restaurantId));
+    }
+
+    private void update(Long restaurantId) {
+        if (refreshing) {
+            updatedDuringRefresh.add(restaurantId);
+        }
+        RestaurantSummary summary = restaurantRepository.findSummaryById(restaurantId).orElse(null);
+        boolean needsRefresh = false;
+        synchronized (this) {
+            Map<String, Ranking> newByCategory = new HashMap<>();
+            for (Map.Entry<String, Ranking> entry : byCategory.entrySet()) {
+                boolean sameCategory = summary != null && entry.getKey().equals(summary.getCategory());
+                Ranking updated = merge(entry.getValue(), restaurantId, sameCategory ? summary : null);
+                needsRefresh |= updated == null;
+                newByCategory.put(entry.getKey(), updated == null ? entry.getValue() : updated);
+            }
+            // 排行建立後才出現的分類
+            if (summary != null && !byCategory.containsKey(summary.getCategory())) {
+                newByCategory.put(summary.getCategory(), new Ranking(List.of(summary), true));
+            }
+
+            Ranking newOverall = merge(overall, restaurantId, summary);
+            needsRefresh |= newOverall == null;
+            if (newOverall != null) {
+                overall = newOverall;
+            }
+            byCategory = Map.copyOf(newByCategory);
+        }
+        // 名單已不足以確定前 K 名時標記重建，在此之前沿用原本的名單
+        if (needsRefresh) {
+            dirty.set(true);
+        }
+    }
+
+    // 將餐廳的最新摘要併入排行（summary 為 null 表示餐廳已刪除或不屬於此排行）；
+    // 回傳 null 表示名單已不足以保證前 K 名正確，需要重新整理
+    private static Ranking merge(Ranking ranking, Long restaurantId, RestaurantSummary summary) {
+        List<RestaurantSummary> updated = new ArrayList<>(ranking.entries().size() + 1);
+        for (RestaurantSummary entry : ranking.entries()) {
+            if (!entry.getId().equals(restaurantId)) {
+                updated.add(entry);
+            }
+        }
+        if (summary == null && updated.size() == ranking.entries().size()) {
+            return ranking;
+        }
+
+        boolean complete = ranking.complete();
+        if (summary != null) {
+            // 名單不完整時，只有勝過名單尾端才確定屬於前 N 名；否則名單外可能有更好的餐廳，直接捨棄
+            boolean beatsTail = !updated.isEmpty() && RANKING.compare(summary, updated.get(updated.size() - 1)) < 0;
+            if (complete || beatsTail) {
+                updated.add(summary);
+                updated.sort(RANKING);
+            }
+        }
+        if (updated.size() > CANDIDATE_LIMIT) {
+            updated = updated.subList(0, CANDIDATE_LIMIT);
+            complete = false;
+        }
+        if (!complete && updated.size() < POPULAR_LIMIT) {
+            return null;
+        }
+        return new Ranking(List.copyOf(updated), complete);
+    }
+
+    private static Ranking toRanking(List<RestaurantSummary> rows) {
+        return new Ranking(List.copyOf(rows), rows.size() < CANDIDATE_LIMIT);
+    }
+}
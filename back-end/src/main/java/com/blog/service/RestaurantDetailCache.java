@@ -0,0 +1,144 @@
+package com.blog.service;
+
+import com.blog.dto.RestaurantResponse;
+import com.blog.util.SingleFlight;
+import com.blog.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Class Name: RestaurantDetailCache
+ * Package: com.blog.service
+ * Description: 餐廳詳情（與使用者無關的部分）的 LRU 快取；餐廳、評論或按讚變動時依餐廳 ID 精準失效，
+ *              另以寫入後存活時間兜底，漏掉的失效最多只影響一個 TTL
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class RestaurantDetailCache {
+
+    // 失效版本號分段數：載入期間若同一段被失效，結果不寫入快取，避免把舊資料放回去
+    private static final int VERSION_STRIPES = 1024;
+
+    private record Entry(RestaurantResponse value, long storedAt) {
+    }
+
+    private final int maxEntries;
+    // 寫入後的存活時間，0 或負數表示不過期
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    // 同一間餐廳同時未命中時只載入一次
+    private final SingleFlight<Long, RestaurantResponse> loads;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public RestaurantDetailCache(@Value("${restaurant.detail-cache.max-entries:500}") int maxEntries,
+                                 @Value("${restaurant.detail-cache.ttl-ms:300000}") long ttlMillis,
+                                 @Value("${restaurant.single-flight.timeout-ms:5000}") long loadTimeoutMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.loads = new SingleFlight<>(loadTimeoutMillis);
+        // accessOrder = true：每次讀取都移到最新，超過上限時淘汰最久未使用的
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > RestaurantDetailCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 讀取快取，未命中時以 loader 載入並放入快取；回傳的是共用物件，呼叫端不可修改
+    public RestaurantResponse get(Long restaurantId, Function<Long, RestaurantResponse> loader) {
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(restaurantId);
+            if (cached != null && isExpired(cached)) {
+                entries.remove(restaurantId);
+                expirations.increment();
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached.value();
+        }
+
+        misses.increment();
+        long version = version(restaurantId);
+        return loads.load(restaurantId, version, () -> {
+            RestaurantResponse loaded = loader.apply(restaurantId);
+            if (loaded != null && versions.get(stripe(restaurantId)) == version) {
+                synchronized (entries) {
+                    entries.put(restaurantId, new Entry(loaded, System.currentTimeMillis()));
+                }
+            }
+            return loaded;
+        });
+    }
+
+    // 立即失效，並在交易提交後再失效一次，清掉提交前被其他請求讀入的舊資料
+    public void invalidateAfterCommit(Long restaurantId) {
+        invalidate(restaurantId);
+        TransactionUtils.runAfterCommit(() -> invalidate(restaurantId));
+    }
+
+    // 餐廳資料的版本號，餐廳、評論或按讚變動時遞增；其他依餐廳載入的資料可用來判斷載入期間是否有寫入
+    public long version(Long restaurantId) {
+        return versions.get(stripe(restaurantId));
+    }
+
+    public void invalidate(Long restaurantId) {
+        versions.incrementAndGet(stripe(restaurantId));
+        synchronized (entries) {
+            entries.remove(restaurantId);
+        }
+        invalidations.increment();
+    }
+
+    // 快取統計
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMillis);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("singleFlight", loads.stats());
+        return stats;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttlMillis > 0 && System.currentTimeMillis() - entry.storedAt() >= ttlMillis;
+    }
+
+    private static int stripe(Long restaurantId) {
+        return (int) Math.floorMod(restaurantId, (long) VERSION_STRIPES);
+    }
+}
@@ -0,0 +1,326 @@
+package com.blog.service;
+
+import com.blog.dto.MapCluster;
+import com.blog.model.Restaurant;
+import com.blog.repository.RestaurantRepository;
+import com.blog.util.GeoUtils;
+import com.blog.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Class Name: RestaurantGeoIndex
+ * Package: com.blog.service
+ * Description: 餐廳座標的記憶體網格索引，提供半徑搜尋、地圖範圍（bounding box）搜尋與各縮放層級的標記聚合
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class RestaurantGeoIndex {
+    private static final Logger log = LoggerFactory.getLogger(RestaurantGeoIndex.class);
+
+    // 網格大小（度），約 1.1 公里
+    private static final double CELL_DEGREES = 0.01;
+
+    // 單次半徑或範圍搜尋最多回傳的命中數；超過時只保留最近的部分，並回報結果已截斷
+    public static final int MAX_HITS = 2000;
+
+    // 預先聚合的最大地圖縮放層級；更大的 zoom 沿用此層
+    public static final int MAX_CLUSTER_ZOOM = 18;
+    // 每張 256px 地圖圖磚切成幾格，約每 64px 聚成一群
+    private static final int CLUSTER_CELLS_PER_TILE = 4;
+
+    private final RestaurantRepository restaurantRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 餐廳 ID -> 座標與分類
+    private Map<Long, GeoPoint> points = new HashMap<>();
+    // 網格編號 -> 該格內的餐廳 ID
+    private Map<Long, Set<Long>> cells = new HashMap<>();
+    // 每個縮放層級：網格編號 -> 該格的聚合統計
+    private List<Map<Long, ClusterCell>> clusterLevels = newClusterLevels();
+
+    public RestaurantGeoIndex(RestaurantRepository restaurantRepository) {
+        this.restaurantRepository = restaurantRepository;
+    }
+
+    // 座標索引中的一筆餐廳
+    public record GeoPoint(Long id, double latitude, double longitude, String category) {
+    }
+
+    // 查詢結果：餐廳 ID 與到查詢中心的距離
+    public record GeoHit(Long id, double distanceKm) {
+    }
+
+    // 依距離保留的命中結果，以及截斷前符合條件的總數
+    public record GeoHits(List<GeoHit> hits, int totalMatches) {
+        public boolean truncated() {
+            return totalMatches > hits.size();
+        }
+    }
+
+    // 聚合網格中的一格；只有一間餐廳時 idSum 即為該餐廳 ID
+    private static final class ClusterCell {
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private long idSum;
+    }
+
+    // 啟動時由資料庫重建整份索引
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, GeoPoint> newPoints = new HashMap<>();
+        Map<Long, Set<Long>> newCells = new HashMap<>();
+        List<Map<Long, ClusterCell>> newLevels = newClusterLevels();
+        for (Object[] row : restaurantRepository.findGeoDocuments()) {
+            GeoPoint point = new GeoPoint((Long) row[0], (Double) row[1], (Double) row[2], (String) row[3]);
+            newPoints.put(point.id(), point);
+            newCells.computeIfAbsent(cellOf(point.latitude(), point.longitude()), c -> new HashSet<>()).add(point.id());
+            addToClusters(newLevels, point, 1);
+        }
+
+        lock.writeLock().lock();
+        try {
+            points = newPoints;
+            cells = newCells;
+            clusterLevels = newLevels;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("餐廳座標索引已建立：{} 間餐廳", newPoints.size());
+    }
+
+    // 新增或更新餐廳後同步索引（沒有座標則自索引移除）
+    public void indexAfterCommit(Restaurant restaurant) {
+        Long id = restaurant.getId();
+        if (restaurant.getLatitude() == null || restaurant.getLongitude() == null) {
+            removeAfterCommit(id);
+            return;
+        }
+        GeoPoint point = new GeoPoint(id, restaurant.getLatitude(), restaurant.getLongitude(),
+                restaurant.getCategory());
+        TransactionUtils.runAfterCommit(() -> put(point));
+    }
+
+    // 刪除餐廳後同步索引
+    public void removeAfterCommit(Long id) {
+        TransactionUtils.runAfterCommit(() -> remove(id));
+    }
+
+    // 半徑搜尋：回傳距離由近到遠的前 limit 筆；filter 在截斷前逐筆套用（例如關鍵字比對）
+    public GeoHits findWithinRadius(double latitude, double longitude, double radiusKm,
+                                    String category, Predicate<Long> filter, int limit) {
+        double dLat = radiusKm / GeoUtils.KM_PER_DEGREE;
+        double dLng = GeoUtils.kmToLongitudeDegrees(radiusKm, latitude);
+        List<GeoHit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            scan(latitude - dLat, longitude - dLng, latitude + dLat, longitude + dLng, point -> {
+                if ((category != null && !category.equals(point.category())) || !filter.test(point.id())) {
+                    return;
+                }
+                double distance = GeoUtils.distanceKm(latitude, longitude, point.latitude(), point.longitude());
+                if (distance <= radiusKm) {
+                    hits.add(new GeoHit(point.id(), distance));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return nearest(hits, limit);
+    }
+
+    // 範圍搜尋：回傳範圍內的餐廳，超過 limit 時保留離範圍中心最近的部分；filter 在截斷前逐筆套用
+    public GeoHits findWithinBounds(double minLat, double minLng, double maxLat, double maxLng,
+                                    String category, Predicate<Long> filter, int limit) {
+        double centerLat = (minLat + maxLat) / 2;
+        double centerLng = (minLng + maxLng) / 2;
+        List<GeoHit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            scan(minLat, minLng, maxLat, maxLng, point -> {
+                if ((category != null && !category.equals(point.category())) || !filter.test(point.id())) {
+                    return;
+                }
+                if (point.latitude() >= minLat && point.latitude() <= maxLat
+                        && point.longitude() >= minLng && point.longitude() <= maxLng) {
+                    hits.add(new GeoHit(point.id(),
+                            GeoUtils.distanceKm(centerLat, centerLng, point.latitude(), point.longitude())));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return nearest(hits, limit);
+    }
+
+    // 地圖標記聚合：取對應縮放層級中與範圍重疊的網格，成本只與畫面上的格數有關，與餐廳總數無關
+    public List<MapCluster> findClusters(double minLat, double minLng, double maxLat, double maxLng, int zoom) {
+        int level = Math.max(0, Math.min(zoom, MAX_CLUSTER_ZOOM));
+        double cellDegrees = clusterCellDegrees(level);
+        long minRow = (long) Math.floor(minLat / cellDegrees);
+        long maxRow = (long) Math.floor(maxLat / cellDegrees);
+        long minCol = (long) Math.floor(minLng / cellDegrees);
+        long maxCol = (long) Math.floor(maxLng / cellDegrees);
+        double cellCount = (double) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+
+        List<MapCluster> clusters = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, ClusterCell> levelCells = clusterLevels.get(level);
+            if (cellCount > levelCells.size()) {
+                // 範圍遠大於已有資料的格數（例如高 zoom 卻要求整個世界）時改為走訪該層所有格
+                levelCells.forEach((key, cell) -> {
+                    long row = key >> 32;
+                    long col = (int) (long) key;
+                    if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol) {
+                        clusters.add(toCluster(cell));
+                    }
+                });
+            } else {
+                for (long row = minRow; row <= maxRow; row++) {
+                    for (long col = minCol; col <= maxCol; col++) {
+                        ClusterCell cell = levelCells.get(cellKey(row, col));
+                        if (cell != null) {
+                            clusters.add(toCluster(cell));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return clusters;
+    }
+
+    // 中心點取到小數第 6 位（約 0.1 公尺），消除增減累積的浮點誤差
+    private static MapCluster toCluster(ClusterCell cell) {
+        return new MapCluster(round6(cell.latitudeSum / cell.count), round6(cell.longitudeSum / cell.count),
+                cell.count, cell.count == 1 ? cell.idSum : null);
+    }
+
+    private static double round6(double value) {
+        return Math.round(value * 1e6) / 1e6;
+    }
+
+    // 新增（delta = 1）或移除（delta = -1）一間餐廳時更新每一層的聚合格
+    private static void addToClusters(List<Map<Long, ClusterCell>> levels, GeoPoint point, int delta) {
+        for (int level = 0; level <= MAX_CLUSTER_ZOOM; level++) {
+            double cellDegrees = clusterCellDegrees(level);
+            long key = cellKey((long) Math.floor(point.latitude() / cellDegrees),
+                    (long) Math.floor(point.longitude() / cellDegrees));
+            Map<Long, ClusterCell> levelCells = levels.get(level);
+            ClusterCell cell = levelCells.computeIfAbsent(key, k -> new ClusterCell());
+            cell.count += delta;
+            cell.latitudeSum += delta * point.latitude();
+            cell.longitudeSum += delta * point.longitude();
+            cell.idSum += delta * point.id();
+            if (cell.count <= 0) {
+                levelCells.remove(key);
+            }
+        }
+    }
+
+    private static double clusterCellDegrees(int level) {
+        return 360.0 / ((1L << level) * CLUSTER_CELLS_PER_TILE);
+    }
+
+    private static List<Map<Long, ClusterCell>> newClusterLevels() {
+        List<Map<Long, ClusterCell>> levels = new ArrayList<>(MAX_CLUSTER_ZOOM + 1);
+        for (int level = 0; level <= MAX_CLUSTER_ZOOM; level++) {
+            levels.add(new HashMap<>());
+        }
+        return levels;
+    }
+
+    // 走訪與範圍重疊的網格；範圍涵蓋的格數比餐廳數還多時直接逐筆檢查（需持有讀鎖）
+    private void scan(double minLat, double minLng, double maxLat, double maxLng, Consumer<GeoPoint> visitor) {
+        long minRow = (long) Math.floor(minLat / CELL_DEGREES);
+        long maxRow = (long) Math.floor(maxLat / CELL_DEGREES);
+        long minCol = (long) Math.floor(minLng / CELL_DEGREES);
+        long maxCol = (long) Math.floor(maxLng / CELL_DEGREES);
+        double cellCount = (double) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+
+        if (cellCount > points.size()) {
+            points.values().forEach(visitor);
+            return;
+        }
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                Set<Long> ids = cells.get(cellKey(row, col));
+                if (ids != null) {
+                    for (Long id : ids) {
+                        visitor.accept(points.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    private static GeoHits nearest(List<GeoHit> hits, int limit) {
+        hits.sort(Comparator.comparingDouble(GeoHit::distanceKm).thenComparing(GeoHit::id, Comparator.reverseOrder()));
+        List<GeoHit> kept = hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        return new GeoHits(kept, hits.size());
+    }
+
+    private void put(GeoPoint point) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(point.id());
+            points.put(point.id(), point);
+            cells.computeIfAbsent(cellOf(point.latitude(), point.longitude()), c -> new HashSet<>()).add(point.id());
+            addToClusters(clusterLevels, point, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        GeoPoint previous = points.remove(id);
+        if (previous == null) {
+            return;
+        }
+        addToClusters(clusterLevels, previous, -1);
+        long key = cellOf(previous.latitude(), previous.longitude());
+        Set<Long> ids = cells.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static long cellOf(double latitude, double longitude) {
+        return cellKey((long) Math.floor(latitude / CELL_DEGREES), (long) Math.floor(longitude / CELL_DEGREES));
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,263 @@
+package com.blog.service;
+
+import com.blog.model.Restaurant;
+import com.blog.repository.RestaurantRepository;
+import com.blog.util.TextAnalyzer;
+import com.blog.util.TransactionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class Name: RestaurantSearchIndex
+ * Package: com.blog.service
+ * Description: 餐廳名稱、地址、分類與描述的記憶體倒排索引，以 BM25 排序關鍵字搜尋結果
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class RestaurantSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(RestaurantSearchIndex.class);
+
+    // 單次搜尋最多回傳的命中數（依相關度取前段）
+    public static final int MAX_HITS = 1000;
+
+    // BM25 參數
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 欄位權重：名稱最重要，其次是分類
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int ADDRESS_WEIGHT = 1;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final RestaurantRepository restaurantRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 詞 -> (餐廳 ID -> 加權詞頻)；TreeMap 供拉丁詞做前綴查找
+    private TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // 餐廳 ID -> 該文件的詞頻（移除或更新時使用）
+    private Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    // 餐廳 ID -> 加權後的文件長度
+    private Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+    private volatile boolean ready;
+
+    public RestaurantSearchIndex(RestaurantRepository restaurantRepository) {
+        this.restaurantRepository = restaurantRepository;
+    }
+
+    // 啟動時由資料庫重建整份索引
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        TreeMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, Map<String, Integer>> newDocuments = new HashMap<>();
+        Map<Long, Integer> newLengths = new HashMap<>();
+        long newTotalLength = 0;
+
+        for (Object[] row : restaurantRepository.findSearchDocuments()) {
+            Long id = (Long) row[0];
+            Map<String, Integer> terms = analyzeDocument(
+                    (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+            int length = documentLength(terms);
+            newDocuments.put(id, terms);
+            newLengths.put(id, length);
+            newTotalLength += length;
+            terms.forEach((term, tf) -> newPostings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            documentLengths = newLengths;
+            totalLength = newTotalLength;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("餐廳搜尋索引已建立：{} 間餐廳、{} 個詞", newDocuments.size(), newPostings.size());
+    }
+
+    // 索引是否已建立完成；尚未完成時呼叫端應退回資料庫查詢
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 新增或更新餐廳後同步索引；在交易中時等提交成功後才寫入，避免回滾後索引與資料庫不一致
+    public void indexAfterCommit(Restaurant restaurant) {
+        Long id = restaurant.getId();
+        Map<String, Integer> terms = analyzeDocument(restaurant.getName(), restaurant.getAddress(),
+                restaurant.getCategory(), restaurant.getDescription());
+        TransactionUtils.runAfterCommit(() -> put(id, terms));
+    }
+
+    // 刪除餐廳後同步索引
+    public void removeAfterCommit(Long id) {
+        TransactionUtils.runAfterCommit(() -> remove(id));
+    }
+
+    // 以 BM25 搜尋，回傳依相關度排序的餐廳 ID（最多 MAX_HITS 筆）；每個查詢詞都必須命中
+    public List<Long> search(String keyword) {
+        List<String> queryTerms = queryTerms(keyword);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return scoreLocked(queryTerms).entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit(MAX_HITS)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 回傳所有命中關鍵字的餐廳 ID，不排序也不設上限；供座標搜尋逐筆比對候選餐廳，
+    // 避免相關度排在 MAX_HITS 之後但位於範圍內的餐廳被漏掉
+    public Set<Long> matchingIds(String keyword) {
+        List<String> queryTerms = queryTerms(keyword);
+        if (queryTerms.isEmpty()) {
+            return Set.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(scoreLocked(queryTerms).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> queryTerms(String keyword) {
+        return new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.analyzeForQuery(keyword)));
+    }
+
+    // 計算每個命中文件的 BM25 分數（需持有讀鎖）
+    private Map<Long, Double> scoreLocked(List<String> queryTerms) {
+        int docCount = documents.size();
+        if (docCount == 0) {
+            return Map.of();
+        }
+        double avgLength = (double) totalLength / docCount;
+
+        Map<Long, Double> scores = null;
+        for (String term : queryTerms) {
+            // 每個查詢詞在各文件的最佳分數；拉丁詞以前綴比對，輸入到一半也能命中
+            Map<Long, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> entry : matchingPostings(term).entrySet()) {
+                Map<Long, Integer> docs = entry.getValue();
+                double idf = Math.log(1 + (docCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                docs.forEach((id, tf) -> {
+                    double norm = tf + K1 * (1 - B + B * documentLengths.get(id) / avgLength);
+                    termScores.merge(id, idf * tf * (K1 + 1) / norm, Math::max);
+                });
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // 只保留所有詞都命中的文件
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return Map.of();
+            }
+        }
+        return scores;
+    }
+
+    private Map<String, Map<Long, Integer>> matchingPostings(String term) {
+        if (TextAnalyzer.isCjkTerm(term)) {
+            Map<Long, Integer> docs = postings.get(term);
+            return docs == null ? Map.of() : Map.of(term, docs);
+        }
+        return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private void put(Long id, Map<String, Integer> terms) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int length = documentLength(terms);
+            documents.put(id, terms);
+            documentLengths.put(id, length);
+            totalLength += length;
+            terms.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        Map<String, Integer> previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= documentLengths.remove(id);
+        for (String term : previous.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> analyzeDocument(String name, String address, String category,
+                                                        String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, name, NAME_WEIGHT);
+        addField(terms, category, CATEGORY_WEIGHT);
+        addField(terms, address, ADDRESS_WEIGHT);
+        addField(terms, description, DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Integer> terms, String text, int weight) {
+        for (String term : TextAnalyzer.analyzeForIndex(text)) {
+            terms.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private static int documentLength(Map<String, Integer> terms) {
+        int length = 0;
+        for (int tf : terms.values()) {
+            length += tf;
+        }
+        return length;
+    }
+}
@@ -1,6 +1,10 @@
 package com.blog.service;
 
+import com.blog.dto.CursorPage;
+import com.blog.dto.GeoPage;
+import com.blog.dto.MapCluster;
 import com.blog.dto.RestaurantResponse;
+import com.blog.dto.RestaurantSummary;
 import com.blog.exception.ResourceNotFoundException;
 import com.blog.exception.ValidationException;
 import com.blog.model.*;
@@ -8,21 +12,34 @@ import com.blog.repository.RestaurantRepository;
 import com.blog.repository.UserRepository;
 import com.blog.repository.UserRestaurantRepository;
 import com.blog.repository.ReviewLikeRepository;
+import com.blog.repository.ReviewRepository;
+import com.blog.util.GeoUtils;
+import com.blog.util.PaginationUtils;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import com.blog.dto.ReviewDTO;
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.blog.model.Review;
@@ -41,6 +58,21 @@ import org.slf4j.LoggerFactory;
 public class RestaurantService {
     private static final Logger log = LoggerFactory.getLogger(RestaurantService.class);
 
+    private static final int LATEST_RESTAURANT_LIMIT = 10;
+    private static final int TRENDING_RESTAURANT_LIMIT = 10;
+
+    // 半徑搜尋允許的最大半徑（公里）
+    private static final double MAX_RADIUS_KM = 50;
+
+    // 允許排序的欄位（對應已建立索引的聚合欄位）
+    private static final Map<String, String> RESTAURANT_SORT_FIELDS = Map.of(
+            "id", "id",
+            "name", "name",
+            "createdAt", "createdAt",
+            "rating", "averageRating",
+            "averageRating", "averageRating",
+            "reviewCount", "reviewCount");
+
     @Autowired
     private final RestaurantRepository restaurantRepository;
 
@@ -48,58 +80,90 @@ public class RestaurantService {
     private final UserRepository userRepository;
     private final ImageService imageService;
     private final ReviewLikeRepository reviewLikeRepository;
+    private final ReviewRepository reviewRepository;
+    private final RestaurantSearchIndex restaurantSearchIndex;
+    private final RestaurantGeoIndex restaurantGeoIndex;
+    private final PopularRestaurantRanking popularRestaurantRanking;
+    private final TrendingRestaurantTracker trendingRestaurantTracker;
+    private final RestaurantDetailCache restaurantDetailCache;
+    // 需要在交易外先做耗時 I/O 的寫入流程，以程式方式控制交易範圍
+    private final TransactionTemplate transactionTemplate;
 
     public RestaurantService(RestaurantRepository restaurantRepository,
             UserRestaurantRepository userRestaurantRepository,
             UserRepository userRepository, ImageService imageService,
-            ReviewLikeRepository reviewLikeRepository) {
+            ReviewLikeRepository reviewLikeRepository, ReviewRepository reviewRepository,
+            RestaurantSearchIndex restaurantSearchIndex, RestaurantGeoIndex restaurantGeoIndex,
+            PopularRestaurantRanking popularRestaurantRanking,
+            TrendingRestaurantTracker trendingRestaurantTracker,
+            RestaurantDetailCache restaurantDetailCache,
+            TransactionTemplate transactionTemplate) {
         this.restaurantRepository = restaurantRepository;
         this.userRestaurantRepository = userRestaurantRepository;
         this.userRepository = userRepository;
         this.imageService = imageService;
         this.reviewLikeRepository = reviewLikeRepository;
+        this.reviewRepository = reviewRepository;
+        this.restaurantSearchIndex = restaurantSearchIndex;
+        this.restaurantGeoIndex = restaurantGeoIndex;
+        this.popularRestaurantRanking = popularRestaurantRanking;
+        this.trendingRestaurantTracker = trendingRestaurantTracker;
+        this.restaurantDetailCache = restaurantDetailCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    // 新增餐廳
-    @Transactional
+    // 新增餐廳：圖片先在交易外上傳，交易只負責寫入資料庫，連線占用時間與儲存服務的延遲無關
     public Restaurant createRestaurant(RestaurantResponse dto, String currentUserName, MultipartFile image) {
-        User user = userRepository.findByUsername(currentUserName)
-                .orElseThrow(() -> new RuntimeException("用戶未找到"));
+        GeoUtils.validateCoordinates(dto.getLatitude(), dto.getLongitude());
 
         String imageUrl = null;
         if (image != null && !image.isEmpty()) {
             try {
                 imageUrl = imageService.uploadImage(image);
-                System.out.println("Service imageService.uploadImage(image): " + imageUrl);
+                log.debug("餐廳圖片已上傳：{}", imageUrl);
             } catch (IOException e) {
-                System.out.println("Service imageService.uploadImage(image) 發生錯誤: " + e.getMessage());
+                log.error("上傳餐廳圖片時發生錯誤", e);
                 throw new RuntimeException("圖片上傳失敗", e);
             }
-        } else {
-            System.out.println("Service imageService.uploadImage(image): no image");
         }
 
+        String stagedImageUrl = imageUrl;
+        try {
+            return transactionTemplate.execute(status -> insertRestaurant(dto, currentUserName, stagedImageUrl));
+        } catch (RuntimeException e) {
+            // 資料沒有寫入，已上傳的圖片不會被引用
+            imageService.discardStagedImage(stagedImageUrl);
+            throw e;
+        }
+    }
+
+    private Restaurant insertRestaurant(RestaurantResponse dto, String currentUserName, String imageUrl) {
+        User user = userRepository.findByUsername(currentUserName)
+                .orElseThrow(() -> new RuntimeException("用戶未找到"));
+
         Restaurant restaurant = new Restaurant();
         restaurant.setName(dto.getName());
         restaurant.setAddress(dto.getAddress());
         restaurant.setPhone(dto.getPhone());
         restaurant.setCategory(dto.getCategory());
         restaurant.setDescription(dto.getDescription());
+        restaurant.setLatitude(dto.getLatitude());
+        restaurant.setLongitude(dto.getLongitude());
         restaurant.setCreatedByUsername(currentUserName);
         restaurant.setCreatedAt(LocalDateTime.now());
         restaurant.setImageUrl(imageUrl);
 
-        System.out.println("Service restaurant.getImageUrl(): " + restaurant.getImageUrl());
-        System.out.println("Service image != null: " + (image != null));
-        System.out.println("Service image.isEmpty(): " + (image != null ? image.isEmpty() : "image is null"));
-
         Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        restaurantSearchIndex.indexAfterCommit(savedRestaurant);
+        restaurantGeoIndex.indexAfterCommit(savedRestaurant);
+        popularRestaurantRanking.updateAfterCommit(savedRestaurant.getId());
+        generateImageVariants(savedRestaurant);
 
         return savedRestaurant;
     }
 
-    // 取得所有餐廳
-    public Page<Restaurant> getAllRestaurants(
+    // 取得所有餐廳（摘要）
+    public Page<RestaurantSummary> getAllRestaurants(
             int page,
             int size,
             String sort,
@@ -107,59 +171,242 @@ public class RestaurantService {
             String category,
             Double minRating) {
 
-        // 創建分頁和排序
-        Sort sortObj;
-        if (sort != null && !sort.isEmpty()) {
-            String[] sortParams = sort.split(",");
-            if (sortParams.length > 1) {
-                sortObj = Sort.by(Sort.Direction.fromString(sortParams[1]), sortParams[0]);
-            } else {
-                sortObj = Sort.by(sortParams[0]);
+        int pageSize = PaginationUtils.clampSize(size);
+        keyword = emptyToNull(keyword);
+
+        // 關鍵字由搜尋索引取得候選餐廳；未指定排序時依相關度排序
+        if (keyword != null && restaurantSearchIndex.isReady()) {
+            List<Long> hits = restaurantSearchIndex.search(keyword);
+            if (hits.isEmpty()) {
+                return Page.empty(PageRequest.of(page, pageSize));
             }
+            if (sort == null || sort.isEmpty()) {
+                return rankedPage(hits, emptyToNull(category), minRating, PageRequest.of(page, pageSize));
+            }
+            return restaurantRepository.findSummariesByIdIn(hits, emptyToNull(category), minRating,
+                    PageRequest.of(page, pageSize, buildRestaurantSort(sort)));
+        }
+
+        // 創建分頁和排序（分頁大小有上限）
+        Pageable pageable = PageRequest.of(page, pageSize, buildRestaurantSort(sort));
+
+        // 篩選、排序與總數皆由資料庫處理，分頁大小與 totalElements 因此正確
+        return restaurantRepository.findAllWithFilters(
+                keyword, emptyToNull(category), minRating, pageable);
+    }
+
+    // 半徑搜尋：依距離由近到遠排序，可再搭配關鍵字、分類與評分篩選（最多 RestaurantGeoIndex.MAX_HITS 筆）
+    public GeoPage<RestaurantSummary> getRestaurantsNearby(
+            double latitude,
+            double longitude,
+            double radiusKm,
+            int page,
+            int size,
+            String keyword,
+            String category,
+            Double minRating) {
+
+        GeoUtils.validateCoordinates(latitude, longitude);
+        if (radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            throw new ValidationException("搜尋半徑需介於 0 到 " + (int) MAX_RADIUS_KM + " 公里之間");
+        }
+        RestaurantGeoIndex.GeoHits hits = restaurantGeoIndex.findWithinRadius(latitude, longitude, radiusKm,
+                emptyToNull(category), keywordFilter(keyword), RestaurantGeoIndex.MAX_HITS);
+        return geoPage(hits, page, size, null, category, minRating, true);
+    }
+
+    // 地圖範圍搜尋：未指定排序時離範圍中心近的優先（最多 RestaurantGeoIndex.MAX_HITS 筆）
+    public GeoPage<RestaurantSummary> getRestaurantsInBounds(
+            double minLat,
+            double minLng,
+            double maxLat,
+            double maxLng,
+            int page,
+            int size,
+            String sort,
+            String keyword,
+            String category,
+            Double minRating) {
+
+        GeoUtils.validateBounds(minLat, minLng, maxLat, maxLng);
+        RestaurantGeoIndex.GeoHits hits = restaurantGeoIndex.findWithinBounds(minLat, minLng, maxLat, maxLng,
+                emptyToNull(category), keywordFilter(keyword), RestaurantGeoIndex.MAX_HITS);
+        return geoPage(hits, page, size, sort, category, minRating, false);
+    }
+
+    // 地圖標記聚合（依縮放層級預先聚合的網格）
+    public List<MapCluster> getRestaurantClusters(double minLat, double minLng, double maxLat, double maxLng,
+                                                  int zoom) {
+        GeoUtils.validateBounds(minLat, minLng, maxLat, maxLng);
+        return restaurantGeoIndex.findClusters(minLat, minLng, maxLat, maxLng, zoom);
+    }
+
+    // 關鍵字以全部命中的集合逐筆比對座標候選，不受搜尋結果的相關度上限影響
+    private Predicate<Long> keywordFilter(String keyword) {
+        keyword = emptyToNull(keyword);
+        if (keyword == null) {
+            return id -> true;
+        }
+        Set<Long> matched = restaurantSearchIndex.matchingIds(keyword);
+        return matched::contains;
+    }
+
+    // 座標索引的命中結果再交給資料庫套用評分篩選並分頁；半徑搜尋時補上距離。
+    // 評分篩選與排序在座標索引截斷之後執行，截斷時以 truncated 告知呼叫端
+    private GeoPage<RestaurantSummary> geoPage(RestaurantGeoIndex.GeoHits geoHits, int page, int size, String sort,
+                                               String category, Double minRating, boolean includeDistance) {
+        Pageable pageable = PageRequest.of(page, PaginationUtils.clampSize(size));
+        Map<Long, Double> distances = new HashMap<>();
+        List<Long> ids = new ArrayList<>(geoHits.hits().size());
+        for (RestaurantGeoIndex.GeoHit hit : geoHits.hits()) {
+            distances.put(hit.id(), hit.distanceKm());
+            ids.add(hit.id());
+        }
+        if (ids.isEmpty()) {
+            return new GeoPage<>(Page.empty(pageable), false, RestaurantGeoIndex.MAX_HITS);
+        }
+
+        Page<RestaurantSummary> result = sort == null || sort.isEmpty()
+                ? rankedPage(ids, emptyToNull(category), minRating, pageable)
+                : restaurantRepository.findSummariesByIdIn(ids, emptyToNull(category), minRating,
+                        PageRequest.of(page, pageable.getPageSize(), buildRestaurantSort(sort)));
+        if (includeDistance) {
+            result.getContent().forEach(summary ->
+                    summary.setDistanceKm(Math.round(distances.get(summary.getId()) * 1000) / 1000.0));
+        }
+        return new GeoPage<>(result, geoHits.truncated(), RestaurantGeoIndex.MAX_HITS);
+    }
+
+    // 依給定的 ID 順序（相關度或距離）排列符合篩選條件的餐廳後再分頁（命中數上限由各索引的 MAX_HITS 決定）
+    private Page<RestaurantSummary> rankedPage(List<Long> hits, String category, Double minRating,
+                                               Pageable pageable) {
+        Map<Long, RestaurantSummary> byId = new HashMap<>();
+        for (RestaurantSummary summary : restaurantRepository.findSummariesByIdIn(
+                hits, category, minRating, Pageable.unpaged()).getContent()) {
+            byId.put(summary.getId(), summary);
+        }
+        List<RestaurantSummary> ranked = new ArrayList<>(byId.size());
+        for (Long id : hits) {
+            RestaurantSummary summary = byId.get(id);
+            if (summary != null) {
+                ranked.add(summary);
+            }
+        }
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(ranked.subList(from, to), pageable, ranked.size());
+    }
+
+    // 游標分頁取得餐廳（最新優先）：以 (createdAt, id) 向後查找，不執行 COUNT
+    public CursorPage<RestaurantSummary> getRestaurantsByCursor(
+            String cursor,
+            int size,
+            String keyword,
+            String category,
+            Double minRating) {
+
+        int pageSize = PaginationUtils.clampSize(size);
+        String[] after = PaginationUtils.decodeCursor(cursor, 2);
+        LocalDateTime afterCreatedAt = after == null ? null : PaginationUtils.cursorDateTime(after[0]);
+        Long afterId = after == null ? null : PaginationUtils.cursorLong(after[1]);
+
+        // 多取一筆判斷是否還有下一頁；關鍵字由搜尋索引縮小候選範圍
+        keyword = emptyToNull(keyword);
+        List<RestaurantSummary> rows;
+        if (keyword != null && restaurantSearchIndex.isReady()) {
+            List<Long> hits = restaurantSearchIndex.search(keyword);
+            rows = hits.isEmpty() ? new ArrayList<>() : restaurantRepository.findSummariesAfterByIdIn(
+                    hits, emptyToNull(category), minRating, afterCreatedAt, afterId, PageRequest.of(0, pageSize + 1));
         } else {
-            sortObj = Sort.by("id").descending();
+            rows = restaurantRepository.findSummariesAfter(
+                    keyword, emptyToNull(category), minRating,
+                    afterCreatedAt, afterId, PageRequest.of(0, pageSize + 1));
         }
 
-        Pageable pageable = PageRequest.of(page, size, sortObj);
-
-        // 先獲取基本篩選結果
-        Page<Restaurant> restaurants = restaurantRepository.findAllWithFilters(
-                keyword, category, pageable);
-
-        // 如果有最低評分要求，在內存中進行篩選
-        if (minRating != null) {
-            List<Restaurant> filteredContent = restaurants.getContent().stream()
-                    .filter(r -> {
-                        double avgRating = r.getReviews().stream()
-                                .mapToInt(review -> review.getRating())
-                                .average()
-                                .orElse(0.0);
-                        return avgRating >= minRating;
-                    })
-                    .collect(Collectors.toList());
+        boolean hasNext = rows.size() > pageSize;
+        List<RestaurantSummary> content = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            RestaurantSummary last = content.get(content.size() - 1);
+            nextCursor = PaginationUtils.encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPage<>(content, nextCursor, hasNext, pageSize);
+    }
 
-            // 創建新的 Page 對象
-            return new PageImpl<>(
-                    filteredContent,
-                    pageable,
-                    filteredContent.size()
-            );
+    // 將前端的排序參數（例如 "rating,desc"）轉為白名單內的欄位，並以 id 作為穩定排序的最後依據
+    private Sort buildRestaurantSort(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return Sort.by(Sort.Direction.DESC, "id");
+        }
+        String[] sortParams = sort.split(",");
+        Sort.Direction direction = sortParams.length > 1
+                ? Sort.Direction.fromOptionalString(sortParams[1].trim()).orElse(Sort.Direction.ASC)
+                : Sort.Direction.ASC;
+
+        String property = RESTAURANT_SORT_FIELDS.get(sortParams[0].trim());
+        if (property == null) {
+            throw new ValidationException("不支援的排序欄位：" + sortParams[0]);
+        }
+        if ("id".equals(property)) {
+            return Sort.by(direction, "id");
         }
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
 
-        return restaurants;
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
     }
 
     // 透過 ID 取得特定餐廳
+    // 與使用者無關的詳情由快取提供，再複製一份疊上當前用戶的按讚狀態
     public RestaurantResponse getRestaurantById(Long id, Long currentUserId) {
+        RestaurantResponse response = new RestaurantResponse(restaurantDetailCache.get(id, this::loadRestaurantDetail));
+        List<ReviewDTO> reviews = response.getReviews();
+        if (currentUserId != null && reviews != null && !reviews.isEmpty()) {
+            Set<Long> likedReviewIds = new HashSet<>(reviewLikeRepository.findLikedReviewIds(currentUserId,
+                    reviews.stream().map(ReviewDTO::getId).collect(Collectors.toList())));
+            reviews.forEach(review -> review.setIsLiked(likedReviewIds.contains(review.getId())));
+        }
+        return response;
+    }
+
+    // 快取未命中時載入詳情（不含個人化的按讚狀態）
+    private RestaurantResponse loadRestaurantDetail(Long id) {
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("找不到ID為 " + id + " 的餐廳"));
-        return toDto(restaurant, currentUserId);
+        return toDto(restaurant, (Long) null);
     }
 
-    // 更新餐廳資訊
-    @Transactional
+    // 餐廳詳情快取統計
+    public Map<String, Object> getDetailCacheStats() {
+        return restaurantDetailCache.stats();
+    }
+
+    // 更新餐廳資訊：新圖片先在交易外上傳，被取代的舊圖片在交易提交後才刪除
     public Restaurant updateRestaurant(Long id, Restaurant newRestaurantData, String currentUserName,
                                        MultipartFile image) {
+        String newImageUrl = null;
+        if (image != null && !image.isEmpty()) {
+            try {
+                newImageUrl = imageService.uploadImage(image);
+            } catch (IOException e) {
+                throw new ValidationException("圖片上傳失敗");
+            }
+        }
+
+        String stagedImageUrl = newImageUrl;
+        try {
+            return transactionTemplate.execute(status ->
+                    applyRestaurantUpdate(id, newRestaurantData, currentUserName, image == null, stagedImageUrl));
+        } catch (RuntimeException e) {
+            imageService.discardStagedImage(stagedImageUrl);
+            throw e;
+        }
+    }
+
+    // removeImage 為 true 時移除現有圖片；newImageUrl 不為 null 時換成已上傳的新圖片
+    private Restaurant applyRestaurantUpdate(Long id, Restaurant newRestaurantData, String currentUserName,
+                                             boolean removeImage, String newImageUrl) {
         try {
             // 檢查餐廳是否存在
             Restaurant restaurant = restaurantRepository.findById(id)
@@ -176,29 +423,35 @@ public class RestaurantService {
             restaurant.setPhone(newRestaurantData.getPhone());
             restaurant.setCategory(newRestaurantData.getCategory());
             restaurant.setDescription(newRestaurantData.getDescription());
+            // 未帶座標時保留原本的座標
+            GeoUtils.validateCoordinates(newRestaurantData.getLatitude(), newRestaurantData.getLongitude());
+            if (newRestaurantData.getLatitude() != null) {
+                restaurant.setLatitude(newRestaurantData.getLatitude());
+                restaurant.setLongitude(newRestaurantData.getLongitude());
+            }
 
-            // 處理圖片
-            if (image == null) {
-                // 如果沒有新圖片，刪除舊圖片
+            // 處理圖片：舊圖片（含縮圖）在交易提交後才刪除
+            if (removeImage || newImageUrl != null) {
                 if (restaurant.getImageUrl() != null) {
-                    imageService.deleteImage(restaurant.getImageUrl());
-                    restaurant.setImageUrl(null);
-                }
-            } else if (!image.isEmpty()) {
-                // 如果有新圖片，上傳新圖片
-                try {
-                    String imageUrl = imageService.uploadImage(image);
-                    restaurant.setImageUrl(imageUrl);
-                } catch (IOException e) {
-                    throw new ValidationException("圖片上傳失敗");
+                    imageService.deleteImagesAfterCommit(restaurant.getImageUrl(),
+                            restaurant.getImageThumbnailUrl(), restaurant.getImageMediumUrl());
                 }
+                restaurant.setImageUrl(newImageUrl);
+                clearImageVariants(restaurant);
             }
 
-            System.out.println("餐廳成功更新：" + id);
-            return restaurantRepository.save(restaurant);
+            Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+            restaurantSearchIndex.indexAfterCommit(savedRestaurant);
+            restaurantGeoIndex.indexAfterCommit(savedRestaurant);
+            popularRestaurantRanking.updateAfterCommit(savedRestaurant.getId());
+            restaurantDetailCache.invalidateAfterCommit(savedRestaurant.getId());
+            if (newImageUrl != null) {
+                generateImageVariants(savedRestaurant);
+            }
+            log.debug("餐廳成功更新：{}", id);
+            return savedRestaurant;
         } catch (Exception e) {
-            System.err.println("更新餐廳時發生錯誤: " + e.getMessage());
-            e.printStackTrace();
+            log.error("更新餐廳 {} 時發生錯誤", id, e);
             throw e;
         }
     }
@@ -240,6 +493,10 @@ public class RestaurantService {
 
             // 最後刪除餐廳
             restaurantRepository.delete(restaurant);
+            restaurantSearchIndex.removeAfterCommit(id);
+            restaurantGeoIndex.removeAfterCommit(id);
+            popularRestaurantRanking.removeAfterCommit(id);
+            restaurantDetailCache.invalidateAfterCommit(id);
 
             System.out.println("餐廳成功刪除：" + id);
         } catch (Exception e) {
@@ -252,16 +509,8 @@ public class RestaurantService {
     }
 
     // 獲取使用者收藏餐廳
-    public List<RestaurantResponse> getUserFavorites(Long userId) {
-        List<Restaurant> restaurants = userRestaurantRepository.findByUserId(userId)
-                .stream()
-                .map(UserRestaurant::getRestaurant)
-                .collect(Collectors.toList());
-
-        // 轉換成 DTO
-        return restaurants.stream()
-                .map(restaurant -> toDto(restaurant, userId))  // 使用 toDto 方法轉換
-                .collect(Collectors.toList());
+    public List<RestaurantSummary> getUserFavorites(Long userId) {
+        return restaurantRepository.findFavoriteSummariesByUserId(userId);
     }
 
     // 獲取用戶創建的餐廳
@@ -270,75 +519,137 @@ public class RestaurantService {
     }
 
     // 熱門餐廳
-    public List<RestaurantResponse> getPopularRestaurants(Long currentUserId) {
-        List<Restaurant> restaurants = restaurantRepository.findPopularRestaurants();
-        return restaurants.stream().map(restaurant -> {
-            RestaurantResponse response = new RestaurantResponse();
-            response.setId(restaurant.getId());
-            response.setName(restaurant.getName());
-            response.setAddress(restaurant.getAddress());
-            response.setPhone(restaurant.getPhone());
-            response.setCategory(restaurant.getCategory());
-            response.setDescription(restaurant.getDescription());
-            response.setCreatedByUsername(restaurant.getCreatedByUsername());
-            response.setImageUrl(restaurant.getImageUrl());
-            // 計算平均評分
-            response.setAverageRating(restaurant.getReviews().isEmpty() ? 0.0
-                    : restaurant.getReviews().stream().mapToInt(Review::getRating).average().orElse(0.0));
-            // 設定評論數
-            response.setReviewCount(restaurant.getReviews() == null ? 0 : restaurant.getReviews().size());
-            // 設定評論列表
-            response.setReviews(restaurant.getReviews().stream()
-                    .map(review -> toReviewDTO(review, currentUserId))
-                    .collect(Collectors.toList()));
-            return response;
-        }).collect(Collectors.toList());
+    public List<RestaurantSummary> getPopularRestaurants(String category) {
+        return popularRestaurantRanking.getTop(emptyToNull(category));
+    }
+
+    // 趨勢餐廳：依時間窗內衰減後的評論與按讚速度排序
+    public List<RestaurantSummary> getTrendingRestaurants(String window) {
+        List<Long> ids = trendingRestaurantTracker.getTrending(window, TRENDING_RESTAURANT_LIMIT);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return rankedPage(ids, null, null, PageRequest.of(0, TRENDING_RESTAURANT_LIMIT)).getContent();
     }
 
     // 最新餐廳
-    public List<RestaurantResponse> getLatestRestaurants(Long currentUserId) {
-        List<Restaurant> restaurants = restaurantRepository.findTop10ByOrderByCreatedAtDesc();
-        return restaurants.stream().map(restaurant -> {
-            RestaurantResponse response = new RestaurantResponse();
-            response.setId(restaurant.getId());
-            response.setName(restaurant.getName());
-            response.setAddress(restaurant.getAddress());
-            response.setPhone(restaurant.getPhone());
-            response.setCategory(restaurant.getCategory());
-            response.setDescription(restaurant.getDescription());
-            response.setCreatedByUsername(restaurant.getCreatedByUsername());
-            response.setImageUrl(restaurant.getImageUrl());
-            // 計算平均評分
-            response.setAverageRating(restaurant.getReviews().isEmpty() ? 0.0
-                    : restaurant.getReviews().stream().mapToInt(Review::getRating).average().orElse(0.0));
-            // 設定評論數
-            response.setReviewCount(restaurant.getReviews() == null ? 0 : restaurant.getReviews().size());
-            // 設定評論列表
-            response.setReviews(restaurant.getReviews().stream()
-                    .map(review -> toReviewDTO(review, currentUserId))
-                    .collect(Collectors.toList()));
-            return response;
-        }).collect(Collectors.toList());
-    }
-
-    // 計算餐廳平均評分
+    public List<RestaurantSummary> getLatestRestaurants() {
+        return restaurantRepository.findLatestSummaries(PageRequest.of(0, LATEST_RESTAURANT_LIMIT));
+    }
+
+    // 取得餐廳平均評分（直接讀取已維護的聚合欄位）
     public double calculateAverageRating(Long restaurantId) {
         Restaurant restaurant = restaurantRepository.findById(restaurantId)
                 .orElseThrow(() -> new RuntimeException("找不到餐廳"));
+        return restaurant.getAverageRating() == null ? 0.0 : restaurant.getAverageRating();
+    }
+
+    // 套用單筆評論的評分變化：oldRating 為 null 表示新增，newRating 為 null 表示刪除
+    @Transactional
+    public void applyRatingChange(Long restaurantId, Integer oldRating, Integer newRating) {
+        int[] starDeltas = new int[6];
+        long sumDelta = 0;
+        int countDelta = 0;
+        if (oldRating != null) {
+            sumDelta -= oldRating;
+            countDelta--;
+            if (oldRating >= 1 && oldRating <= 5) {
+                starDeltas[oldRating]--;
+            }
+        }
+        if (newRating != null) {
+            sumDelta += newRating;
+            countDelta++;
+            if (newRating >= 1 && newRating <= 5) {
+                starDeltas[newRating]++;
+            }
+        }
+        if (sumDelta == 0 && countDelta == 0 && Arrays.stream(starDeltas).allMatch(d -> d == 0)) {
+            return;
+        }
 
-        double averageRating = restaurant.getReviews().stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
+        restaurantRepository.adjustRatingAggregates(restaurantId, sumDelta, countDelta,
+                starDeltas[1], starDeltas[2], starDeltas[3], starDeltas[4], starDeltas[5]);
+        restaurantRepository.refreshAverageRating(restaurantId);
+        popularRestaurantRanking.updateAfterCommit(restaurantId);
+    }
 
-        restaurant.setAverageRating(averageRating);
-        restaurantRepository.save(restaurant);
+    // 從 reviews 表重建單一餐廳的評分聚合
+    @Transactional
+    public void reconcileRatingAggregates(Long restaurantId) {
+        if (!restaurantRepository.existsById(restaurantId)) {
+            throw new ResourceNotFoundException("找不到ID為 " + restaurantId + " 的餐廳");
+        }
 
-        return averageRating;
+        long[] starCounts = new long[6];
+        long ratingSum = 0;
+        long reviewCount = 0;
+        for (Object[] row : reviewRepository.countByRatingForRestaurant(restaurantId)) {
+            int rating = ((Number) row[0]).intValue();
+            long count = ((Number) row[1]).longValue();
+            ratingSum += rating * count;
+            reviewCount += count;
+            if (rating >= 1 && rating <= 5) {
+                starCounts[rating] += count;
+            }
+        }
+
+        double averageRating = reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+        restaurantRepository.overwriteRatingAggregates(restaurantId, ratingSum, (int) reviewCount,
+                (int) starCounts[1], (int) starCounts[2], (int) starCounts[3],
+                (int) starCounts[4], (int) starCounts[5], averageRating);
+        popularRestaurantRanking.updateAfterCommit(restaurantId);
+        restaurantDetailCache.invalidateAfterCommit(restaurantId);
+    }
+
+    // 啟動時補齊尚未建立評分聚合的餐廳
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileMissingRatingAggregates() {
+        List<Long> restaurantIds = restaurantRepository.findIdsWithMissingRatingAggregates();
+        if (restaurantIds.isEmpty()) {
+            return;
+        }
+        log.info("重建 {} 間餐廳的評分聚合", restaurantIds.size());
+        restaurantIds.forEach(this::reconcileRatingAggregates);
     }
 
     // 將 Restaurant 轉換成 RestaurantResponse
     public RestaurantResponse toDto(Restaurant restaurant, Long currentUserId) {  // 回傳型別是 RestaurantResponse
+        return toDtoList(List.of(restaurant), currentUserId).get(0);
+    }
+
+    // 轉換列表的 Restaurant 物件為 DTO 列表
+    // 評論（含作者與按讚數）與當前用戶的按讚狀態各以一次查詢批次取得，查詢數與餐廳、評論數量無關
+    public List<RestaurantResponse> toDtoList(List<Restaurant> restaurants, Long currentUserId) {
+        if (restaurants.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> restaurantIds = restaurants.stream()
+                .map(Restaurant::getId)
+                .collect(Collectors.toList());
+        List<ReviewDTO> reviews = reviewRepository.findDtosByRestaurantIds(restaurantIds);
+
+        Set<Long> likedReviewIds = new HashSet<>();
+        if (currentUserId != null && !reviews.isEmpty()) {
+            List<Long> reviewIds = reviews.stream().map(ReviewDTO::getId).collect(Collectors.toList());
+            likedReviewIds.addAll(reviewLikeRepository.findLikedReviewIds(currentUserId, reviewIds));
+        }
+
+        Map<Long, List<ReviewDTO>> reviewsByRestaurant = new HashMap<>();
+        for (ReviewDTO review : reviews) {
+            review.setIsLiked(likedReviewIds.contains(review.getId()));
+            reviewsByRestaurant.computeIfAbsent(review.getRestaurantId(), id -> new ArrayList<>()).add(review);
+        }
+
+        return restaurants.stream()
+                .map(restaurant -> toDto(restaurant,
+                        reviewsByRestaurant.getOrDefault(restaurant.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
+    private RestaurantResponse toDto(Restaurant restaurant, List<ReviewDTO> reviews) {
         RestaurantResponse dto = new RestaurantResponse();
         dto.setId(restaurant.getId());
         dto.setName(restaurant.getName());
@@ -347,66 +658,46 @@ public class RestaurantService {
         dto.setCategory(restaurant.getCategory());
         dto.setDescription(restaurant.getDescription());
         dto.setCreatedByUsername(restaurant.getCreatedByUsername());
-        System.out.println("toDto: restaurant.getImageUrl() = " + restaurant.getImageUrl());
         dto.setImageUrl(restaurant.getImageUrl());
-
-        // 計算平均評分
-        dto.setAverageRating(restaurant.getReviews().isEmpty() ? 0.0
-                : restaurant.getReviews().stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0));
-
-        // 設定評論數
-        dto.setReviewCount(restaurant.getReviews().size());
-
-        // 轉換評論為 DTO
-        dto.setReviews(restaurant.getReviews().stream()
-                .map(review -> toReviewDTO(review, currentUserId))
-                .collect(Collectors.toList()));
-        System.out.println("toDto 結尾 DTO imageUrl: " + dto.getImageUrl());
+        dto.setImageThumbnailUrl(restaurant.getImageThumbnailUrl());
+        dto.setImageMediumUrl(restaurant.getImageMediumUrl());
+        dto.setLatitude(restaurant.getLatitude());
+        dto.setLongitude(restaurant.getLongitude());
+
+        // 平均評分與評論數直接取自聚合欄位
+        dto.setAverageRating(restaurant.getAverageRating() == null ? 0.0 : restaurant.getAverageRating());
+        dto.setReviewCount(restaurant.getReviewCount());
+        dto.setReviews(reviews);
         return dto;
+    }
 
+    // 交易提交後在背景產生餐廳圖片的縮圖
+    private void generateImageVariants(Restaurant restaurant) {
+        Long restaurantId = restaurant.getId();
+        String imageUrl = restaurant.getImageUrl();
+        imageService.generateVariantsAfterCommit(imageUrl, variants -> {
+            int updated = restaurantRepository.attachImageVariants(restaurantId, imageUrl,
+                    variants.get(ImageVariant.THUMBNAIL), variants.get(ImageVariant.MEDIUM));
+            if (updated == 0) {
+                return false;
+            }
+            restaurantDetailCache.invalidate(restaurantId);
+            popularRestaurantRanking.updateAfterCommit(restaurantId);
+            return true;
+        });
     }
 
-    // 轉換列表的 Restaurant 物件為 DTO 列表
-    public List<RestaurantResponse> toDtoList(List<Restaurant> restaurants, Long currentUserId) {
-        return restaurants.stream()
-                .map(restaurant -> toDto(restaurant, currentUserId))
-                .collect(Collectors.toList());
+    // 圖片更換或移除後，舊縮圖的網址已不適用
+    private void clearImageVariants(Restaurant restaurant) {
+        restaurantRepository.clearImageVariants(restaurant.getId());
+        restaurant.setImageThumbnailUrl(null);
+        restaurant.setImageMediumUrl(null);
     }
 
     public boolean existsById(Long restaurantId) {
         return restaurantRepository.existsById(restaurantId);
     }
 
-    //Review 轉 DTO 的方法
-    private ReviewDTO toReviewDTO(Review review, Long currentUserId) {
-        ReviewDTO dto = new ReviewDTO();
-        dto.setId(review.getId());
-        dto.setContent(review.getContent());
-        dto.setRating(review.getRating());
-        dto.setCreated_At(review.getCreated_At());
-        dto.setUpdated_At(review.getUpdated_At());
-        dto.setImageUrl(review.getImageUrl());
-
-        // 設定用戶資訊
-        dto.setUserId(review.getUser().getId());
-        dto.setUsername(review.getUser().getUsername());
-        dto.setUserRole(review.getUser().getRole());
-
-        // 設定餐廳資訊
-        dto.setRestaurantId(review.getRestaurant().getId());
-        dto.setRestaurantName(review.getRestaurant().getName());
-
-        // 設定點讚資訊
-        dto.setLikeCount(review.getLikes().size());
-        dto.setIsLiked(review.getLikes().stream()
-                .anyMatch(like -> like.getUser().getId().equals(currentUserId)));
-
-        return dto;
-    }
-
     public Restaurant getRestaurantEntityById(Long id) {
         return restaurantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("找不到ID為 " + id + " 的餐廳"));
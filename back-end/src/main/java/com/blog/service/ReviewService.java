@@ -8,13 +8,23 @@ import com.blog.model.*;
 import com.blog.repository.ReviewLikeRepository;
 import com.blog.repository.ReviewRepository;
 import com.blog.repository.UserRepository;
+import com.blog.util.PaginationUtils;
+import com.blog.util.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -41,25 +51,59 @@ public class ReviewService {
     private final ReviewLikeRepository reviewLikeRepository;
     private final UserRepository userRepository;
     private final ImageService imageService;
+    private final TrendingRestaurantTracker trendingRestaurantTracker;
+    private final RestaurantDetailCache restaurantDetailCache;
+    // 需要在交易外先上傳圖片的寫入流程，以程式方式控制交易範圍
+    private final TransactionTemplate transactionTemplate;
+    // 熱門餐廳的評論同時被大量請求時，相同查詢只對資料庫執行一次
+    private final SingleFlight<String, Page<ReviewDTO>> reviewPageLoads;
+    private final SingleFlight<Long, List<ReviewDTO>> allReviewLoads;
     private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
 
     @Autowired
     public ReviewService(RestaurantService restaurantService, ReviewRepository reviewRepository,
             ReviewLikeRepository reviewLikeRepository, UserRepository userRepository,
-            ImageService imageService) {
+            ImageService imageService, TrendingRestaurantTracker trendingRestaurantTracker,
+            RestaurantDetailCache restaurantDetailCache, TransactionTemplate transactionTemplate,
+            @Value("${restaurant.single-flight.timeout-ms:5000}") long loadTimeoutMillis) {
         this.restaurantService = restaurantService;
         this.reviewRepository = reviewRepository;
         this.reviewLikeRepository = reviewLikeRepository;
         this.userRepository = userRepository;
         this.imageService = imageService;
+        this.trendingRestaurantTracker = trendingRestaurantTracker;
+        this.restaurantDetailCache = restaurantDetailCache;
+        this.transactionTemplate = transactionTemplate;
+        this.reviewPageLoads = new SingleFlight<>(loadTimeoutMillis);
+        this.allReviewLoads = new SingleFlight<>(loadTimeoutMillis);
     }
 
-    // 新增評論
+    // 新增評論：圖片先在交易外上傳，交易只負責寫入資料庫，連線占用時間與儲存服務的延遲無關
     public Review createReview(Long restaurantId, Review review, MultipartFile image, String currentUserName) {
+        String imageUrl = null;
+        if (image != null && !image.isEmpty()) {
+            try {
+                imageUrl = imageService.uploadImage(image);
+            } catch (IOException e) {
+                throw new RuntimeException("圖片上傳失敗", e);
+            }
+        }
+
+        String stagedImageUrl = imageUrl;
+        try {
+            return transactionTemplate.execute(status ->
+                    insertReview(restaurantId, review, stagedImageUrl, currentUserName));
+        } catch (RuntimeException e) {
+            // 資料沒有寫入，已上傳的圖片不會被引用
+            imageService.discardStagedImage(stagedImageUrl);
+            throw e;
+        }
+    }
+
+    private Review insertReview(Long restaurantId, Review review, String imageUrl, String currentUserName) {
         // 獲取當前用戶
         User user = userRepository.findByUsername(currentUserName)
                 .orElseThrow(() -> new RuntimeException("找不到當前用戶"));
-        Long currentUserId = user.getId(); // 獲取用戶ID
 
         // 獲取餐廳
         Restaurant restaurant = restaurantService.getRestaurantEntityById(restaurantId); // 使用新方法
@@ -67,23 +111,17 @@ public class ReviewService {
 
         // 設置用戶
         review.setUser(user);
-
-        // 處理圖片上傳
-        if (image != null && !image.isEmpty()) {
-            try {
-                String imageUrl = imageService.uploadImage(image);
-                review.setImageUrl(imageUrl);
-            } catch (IOException e) {
-                throw new RuntimeException("圖片上傳失敗", e);
-            }
-        }
+        review.setImageUrl(imageUrl);
 
         // 設置創建時間
         review.setCreated_At(LocalDateTime.now());
 
         // 保存評論
         Review savedReview = reviewRepository.save(review);
-        updateRestaurantRating(restaurantId);
+        restaurantService.applyRatingChange(restaurantId, null, savedReview.getRating());
+        trendingRestaurantTracker.recordReviewAfterCommit(restaurantId);
+        restaurantDetailCache.invalidateAfterCommit(restaurantId);
+        generateImageVariants(savedReview, restaurantId);
         return savedReview;
     }
 
@@ -92,44 +130,101 @@ public class ReviewService {
             Long restaurantId,
             int page,
             int size,
-            String sort) {
-
-        // 獲取所有評論
-        List<ReviewDTO> allReviews = getAllReview(restaurantId);
+            String sort,
+            Long currentUserId) {
 
-        // 根據排序參數排序
-        if ("likes".equals(sort)) {
-            allReviews = sortReviewsByLikes(allReviews);
+        if (page < 0) {
+            throw new ValidationException("分頁參數不正確");
         }
-
-        // 計算總評論數
-        int totalElements = allReviews.size();
-
-        // 應用分頁
-        List<ReviewDTO> pagedReviews = applyPagination(allReviews, page, size);
-
-        // 計算星等分布
-        Map<Integer, Long> starDistribution = calculateStarDistribution(allReviews);
-
-        // 計算平均評分
-        double averageRating = calculateAverageRating(allReviews);
+        size = PaginationUtils.clampSize(size);
+
+        // 只向資料庫取當頁評論，排序也在資料庫完成
+        Pageable pageable = PageRequest.of(page, size);
+        // 相同查詢同時進行時共用一次載入；共用結果不可修改，因此複製後再套用個人化的按讚狀態
+        String loadKey = restaurantId + ":" + ("likes".equals(sort) ? "likes" : "newest") + ":" + page + ":" + size;
+        // 帶入餐廳的版本號：評論寫入提交後到達的請求不會共用寫入前開始的查詢
+        long version = restaurantDetailCache.version(restaurantId);
+        Page<ReviewDTO> reviewPage = reviewPageLoads.load(loadKey, version, () -> "likes".equals(sort)
+                ? reviewRepository.findPageByRestaurantIdOrderByLikes(restaurantId, pageable)
+                : reviewRepository.findPageByRestaurantIdOrderByNewest(restaurantId, pageable));
+        List<ReviewDTO> content = reviewPage.getContent().stream().map(ReviewDTO::new).collect(Collectors.toList());
+        content.forEach(this::applyDefaultFlags);
+        applyLikedFlags(content, currentUserId);
+
+        // 星等分布與平均評分取自餐廳的聚合欄位
+        Restaurant restaurant = restaurantService.getRestaurantEntityById(restaurantId);
+        double averageRating = restaurant.getAverageRating() == null ? 0.0 : restaurant.getAverageRating();
 
         // 構建響應
         return buildPaginationResponse(
-                pagedReviews,
-                totalElements,
+                content,
+                (int) reviewPage.getTotalElements(),
                 page,
                 size,
-                starDistribution,
+                restaurant.getStarDistribution(),
                 averageRating);
     }
 
+    // 以游標分頁獲取餐廳評論（無限捲動用），不執行 COUNT 與 OFFSET
+    public Map<String, Object> getRestaurantReviewsByCursor(
+            Long restaurantId,
+            String cursor,
+            int size,
+            String sort,
+            Long currentUserId) {
+
+        int pageSize = PaginationUtils.clampSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        boolean byLikes = "likes".equals(sort);
+
+        List<ReviewDTO> rows;
+        if (byLikes) {
+            String[] after = PaginationUtils.decodeCursor(cursor, 3);
+            rows = reviewRepository.findByRestaurantIdLikesAfter(restaurantId,
+                    after == null ? null : PaginationUtils.cursorInteger(after[0]),
+                    after == null ? null : PaginationUtils.cursorDateTime(after[1]),
+                    after == null ? null : PaginationUtils.cursorLong(after[2]),
+                    limit);
+        } else {
+            String[] after = PaginationUtils.decodeCursor(cursor, 2);
+            rows = reviewRepository.findByRestaurantIdNewestAfter(restaurantId,
+                    after == null ? null : PaginationUtils.cursorDateTime(after[0]),
+                    after == null ? null : PaginationUtils.cursorLong(after[1]),
+                    limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<ReviewDTO> content = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        content.forEach(this::applyDefaultFlags);
+        applyLikedFlags(content, currentUserId);
+
+        String nextCursor = null;
+        if (hasNext) {
+            ReviewDTO last = content.get(content.size() - 1);
+            nextCursor = byLikes
+                    ? PaginationUtils.encodeCursor(last.getLikeCount(), last.getCreated_At(), last.getId())
+                    : PaginationUtils.encodeCursor(last.getCreated_At(), last.getId());
+        }
+
+        Restaurant restaurant = restaurantService.getRestaurantEntityById(restaurantId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", content);
+        response.put("nextCursor", nextCursor);
+        response.put("hasNext", hasNext);
+        response.put("size", pageSize);
+        response.put("starDistribution", restaurant.getStarDistribution());
+        response.put("averageRating", restaurant.getAverageRating() == null ? 0.0 : restaurant.getAverageRating());
+        return response;
+    }
+
     public List<ReviewDTO> getAllReview(Long restaurantId) {
         // 從數據庫獲取評論並轉換為 DTO
-        return reviewRepository.findByRestaurantId(restaurantId)
+        long version = restaurantDetailCache.version(restaurantId);
+        List<ReviewDTO> shared = allReviewLoads.load(restaurantId, version, () -> reviewRepository.findByRestaurantId(restaurantId)
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        return shared.stream().map(ReviewDTO::new).collect(Collectors.toList());
     }
 
     // 將 Review 實體轉換為 ReviewDTO
@@ -142,6 +237,8 @@ public class ReviewService {
         dto.setCreated_At(review.getCreated_At());
         dto.setUpdated_At(review.getUpdated_At());
         dto.setImageUrl(review.getImageUrl());
+        dto.setImageThumbnailUrl(review.getImageThumbnailUrl());
+        dto.setImageMediumUrl(review.getImageMediumUrl());
 
         if (review.getUser() != null) {
             dto.setUserId(review.getUserId()); // 使用實體中的 getUserId 方法
@@ -154,21 +251,28 @@ public class ReviewService {
             dto.setRestaurantName(review.getRestaurant().getName());
         }
 
-        dto.setLikeCount(review.getLikes().size()); // 直接使用 likes 集合的大小
-        dto.setIsLiked(false); // 默認值，需要根據當前用戶設置
-
-        dto.setIsEdited(review.getCreated_At() != null &&
-                review.getUpdated_At() != null &&
-                review.getCreated_At().isBefore(review.getUpdated_At()));
+        dto.setLikeCount(review.getLikeCount() == null ? 0 : review.getLikeCount()); // 使用儲存的按讚數
+        applyDefaultFlags(dto);
 
         return dto;
     }
 
-    // 根據點讚數排序
-    private List<ReviewDTO> sortReviewsByLikes(List<ReviewDTO> reviews) {
-        return reviews.stream()
-                .sorted((r1, r2) -> r2.getLikeCount().compareTo(r1.getLikeCount())) // 降序排序
-                .collect(Collectors.toList());
+    // 設定 isLiked 預設值與是否編輯過
+    private void applyDefaultFlags(ReviewDTO dto) {
+        dto.setIsLiked(false); // 默認值，需要根據當前用戶設置
+        dto.setIsEdited(dto.getCreated_At() != null &&
+                dto.getUpdated_At() != null &&
+                dto.getCreated_At().isBefore(dto.getUpdated_At()));
+    }
+
+    // 以一次查詢取得當前用戶在這批評論中按讚過哪些，並套用到每個 DTO
+    public void applyLikedFlags(List<ReviewDTO> reviews, Long currentUserId) {
+        if (currentUserId == null || reviews.isEmpty()) {
+            return;
+        }
+        List<Long> reviewIds = reviews.stream().map(ReviewDTO::getId).collect(Collectors.toList());
+        Set<Long> likedReviewIds = new HashSet<>(reviewLikeRepository.findLikedReviewIds(currentUserId, reviewIds));
+        reviews.forEach(review -> review.setIsLiked(likedReviewIds.contains(review.getId())));
     }
 
     // 構建分頁響應
@@ -192,47 +296,9 @@ public class ReviewService {
         return response;
     }
 
-    // 應用分頁
-    private List<ReviewDTO> applyPagination(List<ReviewDTO> reviews, int page, int size) {
-        int fromIndex = page * size;
-        int toIndex = Math.min(fromIndex + size, reviews.size());
-        return (fromIndex < reviews.size()) ? reviews.subList(fromIndex, toIndex) : List.of();
-    }
-
-    // 計算星等分布
-    private Map<Integer, Long> calculateStarDistribution(List<ReviewDTO> reviews) {
-        Map<Integer, Long> distribution = new HashMap<>();
-
-        for (ReviewDTO review : reviews) {
-            int rating = review.getRating();
-            distribution.put(rating, distribution.getOrDefault(rating, 0L) + 1);
-        }
-
-        for (int i = 1; i <= 5; i++) {
-            if (!distribution.containsKey(i)) {
-                distribution.put(i, 0L);
-            }
-        }
-        return distribution;
-    }
-
-    // 計算平均評分
-    private double calculateAverageRating(List<ReviewDTO> reviews) {
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-        // 計算總分
-        int totalRating = 0;
-        for (ReviewDTO review : reviews) {
-            totalRating += review.getRating();
-        }
-
-        // 計算平均分
-        return (double) totalRating / reviews.size();
-    }
-
     // 刪除評論
     @PreAuthorize("hasRole('ADMIN') or @reviewService.isReviewOwner(#reviewId, authentication.name)")
+    @Transactional
     public void deleteReview(Long reviewId, String username) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new ResourceNotFoundException("找不到該評論"));
@@ -245,10 +311,11 @@ public class ReviewService {
             throw new UnauthorizedException("無權刪除此評論");
         }
 
-        reviewRepository.deleteById(reviewId);
-
         Long restaurantId = review.getRestaurant().getId();
-        restaurantService.calculateAverageRating(restaurantId);
+        Integer rating = review.getRating();
+        reviewRepository.deleteById(reviewId);
+        restaurantService.applyRatingChange(restaurantId, rating, null);
+        restaurantDetailCache.invalidateAfterCommit(restaurantId);
     }
 
     public boolean isReviewOwner(Long reviewId, String username) {
@@ -257,61 +324,80 @@ public class ReviewService {
                 .orElse(false);
     }
 
-    // 評論按讚
+    // 評論按讚：一次冪等插入加一次計數更新，重複按讚不會出錯也不會重複計數
+    @Transactional
     public void likeReview(Long userId, Long reviewId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("找不到該用戶"));
-        Review review = reviewRepository.findById(reviewId)
-                .orElseThrow(() -> new RuntimeException("找不到該評論"));
-        if (reviewLikeRepository.existsByUserAndReview(user, review)) {
-            throw new ValidationException("已經按讚過該評論");
+        if (reviewLikeRepository.insertIgnore(userId, reviewId) == 1) {
+            reviewRepository.adjustLikeCount(reviewId, 1);
+            reviewRepository.findRestaurantIdById(reviewId).ifPresent(restaurantId -> {
+                trendingRestaurantTracker.recordLikeAfterCommit(restaurantId);
+                restaurantDetailCache.invalidateAfterCommit(restaurantId);
+            });
+        } else if (!reviewRepository.existsById(reviewId)) {
+            throw new ResourceNotFoundException("找不到該評論");
         }
-        ReviewLike like = new ReviewLike(user, review);
-        reviewLikeRepository.save(like);
     }
 
-    // 按讚評論取消
+    // 按讚評論取消：一次刪除加一次計數更新，未按讚時視為成功
+    @Transactional
     public void unlikeReview(Long userId, Long reviewId) {
-        logger.info("Attempting to unlike review {} by user {}", reviewId, userId);
-
-        try {
-            // 先檢查評論是否存在
-            Review review = reviewRepository.findById(reviewId)
-                    .orElseThrow(() -> new ResourceNotFoundException("找不到該評論"));
-
-            // 再檢查用戶是否存在
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("找不到該用戶"));
-
-            // 檢查是否已經點讚
-            if (!reviewLikeRepository.existsByUserAndReview(user, review)) {
-                logger.warn("User {} has not liked review {}", userId, reviewId);
-                throw new ValidationException("尚未按讚該評論");
-            }
-
-            // 查找具體的點讚記錄
-            ReviewLike like = reviewLikeRepository.findByUserAndReview(user, review)
-                    .orElseThrow(() -> new ResourceNotFoundException("找不到點讚記錄"));
-
-            logger.info("Deleting like for review {} by user {}", reviewId, userId);
-            reviewLikeRepository.delete(like);
-
-            logger.info("Successfully unliked review {} by user {}", reviewId, userId);
-        } catch (Exception e) {
-            logger.error("Error unliking review: {}", e.getMessage());
-            throw new ValidationException("取消按讚失敗：" + e.getMessage());
+        if (reviewLikeRepository.deleteByUserIdAndReviewId(userId, reviewId) > 0) {
+            reviewRepository.adjustLikeCount(reviewId, -1);
+            reviewRepository.findRestaurantIdById(reviewId).ifPresent(restaurantDetailCache::invalidateAfterCommit);
+        } else if (!reviewRepository.existsById(reviewId)) {
+            throw new ResourceNotFoundException("找不到該評論");
         }
     }
 
+    // 評論載入的合併統計（single-flight）
+    public Map<String, Object> getLoadStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reviewPages", reviewPageLoads.stats());
+        stats.put("allReviews", allReviewLoads.stats());
+        return stats;
+    }
+
     // 獲取評論的按讚數
     public Long getReviewLikeCount(Long reviewId) {
-        Review review = reviewRepository.findById(reviewId)
-                .orElseThrow(() -> new RuntimeException("找不到該評論"));
-        return reviewLikeRepository.countByReview(review);
+        return reviewRepository.findLikeCountById(reviewId)
+                .map(Integer::longValue)
+                .orElseThrow(() -> new ResourceNotFoundException("找不到該評論"));
+    }
+
+    // 啟動時補齊尚未初始化的按讚數
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillMissingLikeCounts() {
+        int updated = reviewRepository.backfillMissingLikeCounts();
+        if (updated > 0) {
+            logger.info("重建 {} 則評論的按讚數", updated);
+        }
     }
 
-    // 更新評論
+    // 更新評論：新圖片先在交易外上傳，被取代的舊圖片在交易提交後才刪除
     public Review updateReview(Long reviewId, Review review, MultipartFile image, Authentication authentication) {
+        String newImageUrl = null;
+        if (image != null && !image.isEmpty()) {
+            try {
+                newImageUrl = imageService.uploadImage(image);
+            } catch (IOException e) {
+                throw new RuntimeException("圖片上傳失敗", e);
+            }
+        }
+
+        String stagedImageUrl = newImageUrl;
+        try {
+            return transactionTemplate.execute(status ->
+                    applyReviewUpdate(reviewId, review, image == null, stagedImageUrl, authentication));
+        } catch (RuntimeException e) {
+            imageService.discardStagedImage(stagedImageUrl);
+            throw e;
+        }
+    }
+
+    // removeImage 為 true 時移除現有圖片；newImageUrl 不為 null 時換成已上傳的新圖片
+    private Review applyReviewUpdate(Long reviewId, Review review, boolean removeImage, String newImageUrl,
+                                     Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         Review existingReview = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new RuntimeException("找不到該評論"));
@@ -321,32 +407,55 @@ public class ReviewService {
             throw new RuntimeException("沒有權限更新該評論");
         }
 
+        Integer oldRating = existingReview.getRating();
+
         // 更新評論內容
         existingReview.setContent(review.getContent());
         existingReview.setRating(review.getRating());
 
-        // 處理圖片
-        if (image == null) {
-            // 如果沒有新圖片，刪除舊圖片
+        // 處理圖片：舊圖片（含縮圖）在交易提交後才刪除
+        if (removeImage || newImageUrl != null) {
             if (existingReview.getImageUrl() != null) {
-                imageService.deleteImage(existingReview.getImageUrl());
-                existingReview.setImageUrl(null);
-            }
-        } else if (!image.isEmpty()) {
-            // 如果有新圖片，上傳新圖片
-            try {
-                String imageUrl = imageService.uploadImage(image);
-                existingReview.setImageUrl(imageUrl);
-            } catch (IOException e) {
-                throw new RuntimeException("圖片上傳失敗", e);
+                imageService.deleteImagesAfterCommit(existingReview.getImageUrl(),
+                        existingReview.getImageThumbnailUrl(), existingReview.getImageMediumUrl());
             }
+            existingReview.setImageUrl(newImageUrl);
+            clearImageVariants(existingReview);
         }
 
         Review updatedReview = reviewRepository.save(existingReview);
-        updateRestaurantRating(existingReview.getRestaurant().getId());
+        restaurantService.applyRatingChange(existingReview.getRestaurant().getId(), oldRating,
+                updatedReview.getRating());
+        restaurantDetailCache.invalidateAfterCommit(existingReview.getRestaurant().getId());
+        if (newImageUrl != null) {
+            generateImageVariants(updatedReview, existingReview.getRestaurant().getId());
+        }
         return updatedReview;
     }
 
+    // 交易提交後在背景產生評論圖片的縮圖
+    private void generateImageVariants(Review review, Long restaurantId) {
+        Long reviewId = review.getId();
+        String imageUrl = review.getImageUrl();
+        imageService.generateVariantsAfterCommit(imageUrl, variants -> {
+            int updated = reviewRepository.attachImageVariants(reviewId, imageUrl,
+                    variants.get(ImageVariant.THUMBNAIL), variants.get(ImageVariant.MEDIUM));
+            if (updated == 0) {
+                return false;
+            }
+            restaurantDetailCache.invalidate(restaurantId);
+            return true;
+        });
+    }
+
+    // 圖片更換或移除後，舊縮圖的網址已不適用
+    private void clearImageVariants(Review review) {
+        reviewRepository.clearImageVariants(review.getId());
+        review.setImageThumbnailUrl(null);
+        review.setImageMediumUrl(null);
+    }
+
+    @Transactional
     public Review createReview(Review review) {
         if (review.getRestaurant() == null) {
             throw new ValidationException("評論必須關聯到一個餐廳");
@@ -359,14 +468,12 @@ public class ReviewService {
         }
 
         Review savedReview = reviewRepository.save(review);
-        updateRestaurantRating(review.getRestaurant().getId());
+        restaurantService.applyRatingChange(review.getRestaurant().getId(), null, savedReview.getRating());
+        trendingRestaurantTracker.recordReviewAfterCommit(review.getRestaurant().getId());
+        restaurantDetailCache.invalidateAfterCommit(review.getRestaurant().getId());
         return savedReview;
     }
 
-    private void updateRestaurantRating(Long restaurantId) {
-        restaurantService.calculateAverageRating(restaurantId);
-    }
-
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
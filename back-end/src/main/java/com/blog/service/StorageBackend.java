@@ -0,0 +1,30 @@
+package com.blog.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Class Name: StorageBackend
+ * Package: com.blog.service
+ * Description: 圖片檔案的儲存後端（Google Cloud Storage 或本機測試用的記憶體儲存）
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public interface StorageBackend {
+
+  // 以串流寫入（覆蓋）檔案；讀取 content 途中失敗時不會留下只寫了一部分的檔案
+  void write(String name, String contentType, InputStream content) throws IOException;
+
+  // 檔案資訊；不存在時回傳 null
+  StoredObject stat(String name);
+
+  // 從 offset 開始讀取 length 個位元組的串流，由呼叫端關閉
+  InputStream open(String name, long offset, long length) throws IOException;
+
+  // 刪除檔案；回傳是否確實刪除
+  boolean delete(String name);
+
+  // 存入資料庫的圖片網址
+  String publicUrl(String name);
+}
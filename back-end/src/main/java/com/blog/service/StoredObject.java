@@ -0,0 +1,12 @@
+package com.blog.service;
+
+/**
+ * Class Name: StoredObject
+ * Package: com.blog.service
+ * Description: 儲存後端中單一檔案的中繼資料（大小、類型、ETag 與最後修改時間）
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public record StoredObject(String name, String contentType, long size, String etag, long lastModified) {
+}
@@ -0,0 +1,216 @@
+package com.blog.service;
+
+import com.blog.exception.ValidationException;
+import com.blog.util.TransactionUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class Name: TrendingRestaurantTracker
+ * Package: com.blog.service
+ * Description: 以每小時一格的環狀計數器追蹤各餐廳近期的評論與按讚，依衰減後的成長速度排出趨勢餐廳
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+@Service
+public class TrendingRestaurantTracker {
+    private static final Logger log = LoggerFactory.getLogger(TrendingRestaurantTracker.class);
+
+    // 可查詢的時間窗（小時）
+    private static final Map<String, Integer> WINDOWS = Map.of("24h", 24, "7d", 24 * 7);
+    // 環狀計數器保留最長時間窗的格數
+    private static final int BUCKET_COUNT = 24 * 7;
+    // 每個時間窗只保留前段排行
+    private static final int RANKING_LIMIT = 50;
+
+    // 事件權重：新評論比按讚更能代表熱度
+    private static final int REVIEW_WEIGHT = 3;
+    private static final int LIKE_WEIGHT = 1;
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private final ObjectMapper objectMapper;
+    // 檢查點存放在圖片的儲存後端（Cloud Storage），不放在 Cloud Run 隨執行個體消失的本機檔案系統
+    private final StorageBackend storageBackend;
+    private final String checkpointObject;
+
+    // 餐廳 ID -> 每小時計數
+    private final Map<Long, HourlyCounter> counters = new ConcurrentHashMap<>();
+    // 時間窗 -> 依分數排序的餐廳 ID，定期重算
+    private volatile Map<String, List<Long>> rankings = Map.of();
+
+    public TrendingRestaurantTracker(ObjectMapper objectMapper, StorageBackend storageBackend,
+                                     @Value("${restaurant.trending.checkpoint-object:system/trending-checkpoint.json}")
+                                     String checkpointObject) {
+        this.objectMapper = objectMapper;
+        this.storageBackend = storageBackend;
+        this.checkpointObject = checkpointObject;
+    }
+
+    // 單一餐廳的環狀計數器：slot = 小時 % BUCKET_COUNT，hours 記錄該格目前代表的小時以判斷是否過期
+    private static final class HourlyCounter {
+        private final long[] hours = new long[BUCKET_COUNT];
+        private final int[] counts = new int[BUCKET_COUNT];
+
+        private HourlyCounter() {
+            Arrays.fill(hours, -1);
+        }
+
+        synchronized void add(long hour, int weight) {
+            int slot = (int) (hour % BUCKET_COUNT);
+            if (hours[slot] != hour) {
+                hours[slot] = hour;
+                counts[slot] = 0;
+            }
+            counts[slot] += weight;
+        }
+
+        // 時間窗內各小時的計數依年齡指數衰減後加總（半衰期為時間窗的四分之一）
+        synchronized double score(long nowHour, int windowHours) {
+            double halfLife = windowHours / 4.0;
+            double score = 0;
+            for (int slot = 0; slot < BUCKET_COUNT; slot++) {
+                long age = nowHour - hours[slot];
+                if (hours[slot] >= 0 && age >= 0 && age < windowHours) {
+                    score += counts[slot] * Math.pow(0.5, age / halfLife);
+                }
+            }
+            return score;
+        }
+
+        synchronized boolean isExpired(long nowHour) {
+            for (long hour : hours) {
+                if (hour >= 0 && nowHour - hour < BUCKET_COUNT) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized Map<Long, Integer> snapshot(long nowHour) {
+            Map<Long, Integer> buckets = new HashMap<>();
+            for (int slot = 0; slot < BUCKET_COUNT; slot++) {
+                if (hours[slot] >= 0 && nowHour - hours[slot] < BUCKET_COUNT && counts[slot] > 0) {
+                    buckets.put(hours[slot], counts[slot]);
+                }
+            }
+            return buckets;
+        }
+    }
+
+    // 新評論（交易提交後才計入）
+    public void recordReviewAfterCommit(Long restaurantId) {
+        TransactionUtils.runAfterCommit(() -> record(restaurantId, REVIEW_WEIGHT));
+    }
+
+    // 新的按讚（交易提交後才計入）
+    public void recordLikeAfterCommit(Long restaurantId) {
+        TransactionUtils.runAfterCommit(() -> record(restaurantId, LIKE_WEIGHT));
+    }
+
+    // 趨勢餐廳 ID（依分數由高到低）
+    public List<Long> getTrending(String window, int limit) {
+        if (!WINDOWS.containsKey(window)) {
+            throw new ValidationException("不支援的時間窗：" + window + "（可用 24h、7d）");
+        }
+        List<Long> ranking = rankings.getOrDefault(window, List.of());
+        return ranking.size() > limit ? ranking.subList(0, limit) : ranking;
+    }
+
+    private void record(Long restaurantId, int weight) {
+        counters.computeIfAbsent(restaurantId, id -> new HourlyCounter()).add(currentHour(), weight);
+    }
+
+    // 定期重算各時間窗的排行，並清掉已無近期事件的餐廳
+    @Scheduled(fixedDelayString = "${restaurant.trending.recompute-ms:60000}")
+    public void recompute() {
+        long nowHour = currentHour();
+        counters.entrySet().removeIf(entry -> entry.getValue().isExpired(nowHour));
+
+        Map<String, List<Long>> newRankings = new HashMap<>();
+        for (Map.Entry<String, Integer> window : WINDOWS.entrySet()) {
+            List<Map.Entry<Long, Double>> scored = new ArrayList<>();
+            counters.forEach((id, counter) -> {
+                double score = counter.score(nowHour, window.getValue());
+                if (score > 0) {
+                    scored.add(Map.entry(id, score));
+                }
+            });
+            newRankings.put(window.getKey(), scored.stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit(RANKING_LIMIT)
+                    .map(Map.Entry::getKey)
+                    .toList());
+        }
+        rankings = Map.copyOf(newRankings);
+    }
+
+    // 啟動時載入檢查點，重啟後不需回放歷史評論
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCheckpoint() {
+        try {
+            StoredObject info = storageBackend.stat(checkpointObject);
+            if (info != null) {
+                Map<Long, Map<Long, Integer>> saved;
+                try (InputStream in = storageBackend.open(checkpointObject, 0, info.size())) {
+                    saved = objectMapper.readValue(in, new TypeReference<Map<Long, Map<Long, Integer>>>() {});
+                }
+                saved.forEach((id, buckets) -> {
+                    HourlyCounter counter = counters.computeIfAbsent(id, key -> new HourlyCounter());
+                    buckets.forEach(counter::add);
+                });
+                log.info("已載入趨勢計數檢查點：{} 間餐廳", saved.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("無法讀取趨勢計數檢查點 {}: {}", checkpointObject, e.getMessage());
+        }
+        recompute();
+    }
+
+    // 定期與關閉前寫入檢查點（儲存後端的寫入是整個物件一次替換，不會讀到寫到一半的內容）；
+    // 多個執行個體各自計數並覆寫同一個物件，新啟動的執行個體載入最後寫入的那份
+    @Scheduled(fixedDelayString = "${restaurant.trending.checkpoint-ms:300000}",
+            initialDelayString = "${restaurant.trending.checkpoint-ms:300000}")
+    @PreDestroy
+    public void saveCheckpoint() {
+        long nowHour = currentHour();
+        Map<Long, Map<Long, Integer>> snapshot = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            Map<Long, Integer> buckets = counter.snapshot(nowHour);
+            if (!buckets.isEmpty()) {
+                snapshot.put(id, buckets);
+            }
+        });
+        try {
+            byte[] content = objectMapper.writeValueAsBytes(snapshot);
+            storageBackend.write(checkpointObject, "application/json", new ByteArrayInputStream(content));
+        } catch (IOException | RuntimeException e) {
+            log.warn("無法寫入趨勢計數檢查點 {}: {}", checkpointObject, e.getMessage());
+        }
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / MILLIS_PER_HOUR;
+    }
+}
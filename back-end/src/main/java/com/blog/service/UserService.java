@@ -5,9 +5,12 @@ import com.blog.model.*;
 import com.blog.repository.RestaurantRepository;
 import com.blog.repository.ReviewRepository;
 import com.blog.repository.UserRestaurantRepository;
+import com.blog.security.BoundedPasswordEncoder;
 import com.blog.security.JwtTokenProvider;
+import com.blog.security.TokenVersionCache;
 import com.blog.exception.ResourceNotFoundException;
 import com.blog.exception.ValidationException;
+import com.blog.exception.TooManyRequestsException;
 import com.blog.exception.UnauthorizedException;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
@@ -19,11 +22,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.stereotype.Service;
 import com.blog.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +53,8 @@ public class UserService {
     private final RestaurantRepository restaurantRepository;
     private final RestaurantService restaurantService;
     private final ReviewService reviewService;
+    private final TokenVersionCache tokenVersionCache;
+    private final LoginThrottle loginThrottle;
 
     public UserService(UserRepository userRepository,
             PasswordEncoder passwordEncoder,
@@ -54,7 +62,8 @@ public class UserService {
             UserRestaurantRepository userRestaurantRepository,
             ReviewRepository reviewRepository,
             AuthenticationManager authenticationManager, RestaurantRepository restaurantRepository,
-            RestaurantService restaurantService, ReviewService reviewService) {
+            RestaurantService restaurantService, ReviewService reviewService,
+            TokenVersionCache tokenVersionCache, LoginThrottle loginThrottle) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
@@ -64,11 +73,14 @@ public class UserService {
         this.restaurantRepository = restaurantRepository;
         this.restaurantService = restaurantService;
         this.reviewService = reviewService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.loginThrottle = loginThrottle;
     }
 
     // 用戶註冊
-    public UserDTO registerUser(UserRegisterDTO userRegisterDTO) {
+    public UserDTO registerUser(UserRegisterDTO userRegisterDTO, String clientIp) {
         logger.info("嘗試註冊新用戶: {}", userRegisterDTO.getUsername());
+        loginThrottle.checkRegister(clientIp);
 
         if (userRepository.findByUsername(userRegisterDTO.getUsername()).isPresent()) {
             logger.warn("用戶名已存在: {}", userRegisterDTO.getUsername());
@@ -98,20 +110,40 @@ public class UserService {
     }
 
     // 識別用戶
-    public String authenticateUser(String username, String password) {
+    public String authenticateUser(String username, String password, String clientIp) {
+        loginThrottle.checkLogin(username, clientIp);
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(username, password));
             User user = (User) authentication.getPrincipal();
             String token = jwtTokenProvider.generateToken(user);
+            loginThrottle.onLoginSuccess(username);
             return token;
         } catch (BadCredentialsException e) {
             throw new ValidationException("用戶名或密碼錯誤");
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (InternalAuthenticationServiceException e) {
+            // 查詢使用者時密碼雜湊池已滿，會被包成 InternalAuthenticationServiceException
+            if (e.getCause() instanceof TooManyRequestsException tooManyRequests) {
+                throw tooManyRequests;
+            }
+            throw new ValidationException("登錄失敗：" + e.getMessage());
         } catch (Exception e) {
             throw new ValidationException("登錄失敗：" + e.getMessage());
         }
     }
 
+    // 密碼雜湊執行緒池與登入限流統計
+    public Map<String, Object> getAuthStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (passwordEncoder instanceof BoundedPasswordEncoder boundedPasswordEncoder) {
+            stats.put("passwordHashing", boundedPasswordEncoder.stats());
+        }
+        stats.put("loginThrottle", loginThrottle.stats());
+        return stats;
+    }
+
     public UserDTO getUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("找不到該用戶，帳號：" + username));
@@ -153,7 +185,10 @@ public class UserService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        // 讓改密碼前簽發的 JWT 全部失效
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        tokenVersionCache.evictAfterCommit(userId);
         logger.info("密碼修改成功: {}", userId);
     }
 
@@ -165,38 +200,9 @@ public class UserService {
     }
 
     // 獲取用戶收藏餐廳
-    public List<RestaurantResponse> getUserFavoriteRestaurants(Long userId) {
+    public List<RestaurantSummary> getUserFavoriteRestaurants(Long userId) {
         logger.debug("獲取用戶收藏的餐廳: {}", userId);
-        List<Restaurant> restaurants = userRestaurantRepository.findByUserId(userId)
-                .stream()
-                .map(UserRestaurant::getRestaurant)
-                .collect(Collectors.toList());
-
-        return restaurants.stream().map(restaurant -> {
-            RestaurantResponse response = new RestaurantResponse();
-            response.setId(restaurant.getId());
-            response.setName(restaurant.getName());
-            response.setAddress(restaurant.getAddress());
-            response.setPhone(restaurant.getPhone());
-            response.setCategory(restaurant.getCategory());
-            response.setDescription(restaurant.getDescription());
-            response.setCreatedByUsername(restaurant.getCreatedByUsername());
-            response.setImageUrl(restaurant.getImageUrl());
-
-            // 計算平均評分
-            response.setAverageRating(restaurant.getReviews().isEmpty() ? 0.0
-                    : restaurant.getReviews().stream().mapToInt(Review::getRating).average().orElse(0.0));
-
-            // 設定評論數
-            response.setReviewCount(restaurant.getReviews() == null ? 0 : restaurant.getReviews().size());
-
-            // 設定評論列表 - 轉換成 ReviewDTO
-            response.setReviews(restaurant.getReviews().stream()
-                    .map(review -> toReviewDTO(review, userId)) // 使用 toReviewDTO 方法轉換
-                    .collect(Collectors.toList()));
-
-            return response;
-        }).collect(Collectors.toList());
+        return restaurantRepository.findFavoriteSummariesByUserId(userId);
     }
 
     // 獲取用戶評論
@@ -206,67 +212,15 @@ public class UserService {
     }
 
     // 獲取用戶創建的餐廳
-    public List<RestaurantResponse> getUserCreatedRestaurants(Long userId) {
+    public List<RestaurantSummary> getUserCreatedRestaurants(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        List<Restaurant> userRestaurants = restaurantRepository.findByCreatedByUsername(user.getUsername());
-
-        return userRestaurants.stream().map(restaurant -> {
-            RestaurantResponse response = new RestaurantResponse();
-            response.setId(restaurant.getId());
-            response.setName(restaurant.getName());
-            response.setAddress(restaurant.getAddress());
-            response.setPhone(restaurant.getPhone());
-            response.setCategory(restaurant.getCategory());
-            response.setDescription(restaurant.getDescription());
-            response.setCreatedByUsername(restaurant.getCreatedByUsername());
-            response.setImageUrl(restaurant.getImageUrl());
-
-            // 計算平均評分
-            response.setAverageRating(restaurant.getReviews().isEmpty() ? 0.0
-                    : restaurant.getReviews().stream().mapToInt(Review::getRating).average().orElse(0.0));
-
-            // 設定評論數
-            response.setReviewCount(restaurant.getReviews() == null ? 0 : restaurant.getReviews().size());
-
-            // 設定評論列表 - 轉換成 ReviewDTO
-            response.setReviews(restaurant.getReviews().stream()
-                    .map(review -> toReviewDTO(review, userId)) // 使用 toReviewDTO 方法轉換
-                    .collect(Collectors.toList()));
-
-            return response;
-        }).collect(Collectors.toList());
+        return restaurantRepository.findSummariesByCreatedByUsername(user.getUsername());
     }
 
     // **轉換方法**
     private UserDTO convertToDto(User user) {
         return new UserDTO(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
     }
-
-    private ReviewDTO toReviewDTO(Review review, Long currentUserId) {
-        ReviewDTO dto = new ReviewDTO();
-        dto.setId(review.getId());
-        dto.setContent(review.getContent());
-        dto.setRating(review.getRating());
-        dto.setCreated_At(review.getCreated_At());
-        dto.setUpdated_At(review.getUpdated_At());
-        dto.setImageUrl(review.getImageUrl());
-
-        // 設置用戶資訊
-        dto.setUserId(review.getUser().getId());
-        dto.setUsername(review.getUser().getUsername());
-        dto.setUserRole(review.getUser().getRole());
-
-        // 設置餐廳資訊
-        dto.setRestaurantId(review.getRestaurant().getId());
-        dto.setRestaurantName(review.getRestaurant().getName());
-
-        // 設置點讚資訊
-        dto.setLikeCount(review.getLikes().size());
-        dto.setIsLiked(review.getLikes().stream()
-                .anyMatch(like -> like.getUser().getId().equals(currentUserId)));
-
-        return dto;
-    }
 }
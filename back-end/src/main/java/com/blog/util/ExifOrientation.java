@@ -0,0 +1,108 @@
+package com.blog.util;
+
+/**
+ * Class Name: ExifOrientation
+ * Package: com.blog.util
+ * Description: 從 JPEG 檔頭讀取 EXIF Orientation 標籤（手機照片常以此標記旋轉方向）
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class ExifOrientation {
+
+  // 未旋轉
+  public static final int NORMAL = 1;
+
+  private static final int ORIENTATION_TAG = 0x0112;
+
+  private ExifOrientation() {
+  }
+
+  // 依序走訪 JPEG 區段找 APP1 的 Exif 資料；不是 JPEG、沒有標籤或資料不完整時回傳 NORMAL
+  public static int read(byte[] data, int length) {
+    if (length < 4 || u8(data, 0) != 0xFF || u8(data, 1) != 0xD8) {
+      return NORMAL;
+    }
+    int pos = 2;
+    while (pos + 4 <= length) {
+      if (u8(data, pos) != 0xFF) {
+        return NORMAL;
+      }
+      int marker = u8(data, pos + 1);
+      if (marker == 0xFF) {
+        // 填充位元組
+        pos++;
+        continue;
+      }
+      // 影像資料開始（SOS）或結束（EOI）後不會再有 EXIF
+      if (marker == 0xDA || marker == 0xD9) {
+        return NORMAL;
+      }
+      int segmentLength = u16(data, pos + 2, false);
+      if (segmentLength < 2) {
+        return NORMAL;
+      }
+      int start = pos + 4;
+      int end = Math.min(length, pos + 2 + segmentLength);
+      if (marker == 0xE1 && isExifHeader(data, start, end)) {
+        return readTiffOrientation(data, start + 6, end);
+      }
+      pos += 2 + segmentLength;
+    }
+    return NORMAL;
+  }
+
+  private static boolean isExifHeader(byte[] data, int start, int end) {
+    return start + 6 <= end
+        && data[start] == 'E' && data[start + 1] == 'x' && data[start + 2] == 'i' && data[start + 3] == 'f'
+        && data[start + 4] == 0 && data[start + 5] == 0;
+  }
+
+  // TIFF 結構：位元組順序、IFD0 位移，再於 IFD0 的項目中找 Orientation
+  private static int readTiffOrientation(byte[] data, int tiff, int end) {
+    if (tiff + 8 > end) {
+      return NORMAL;
+    }
+    boolean littleEndian;
+    if (data[tiff] == 'I' && data[tiff + 1] == 'I') {
+      littleEndian = true;
+    } else if (data[tiff] == 'M' && data[tiff + 1] == 'M') {
+      littleEndian = false;
+    } else {
+      return NORMAL;
+    }
+    long offset = u32(data, tiff + 4, littleEndian);
+    if (offset < 8 || tiff + offset + 2 > end) {
+      return NORMAL;
+    }
+    int ifd = tiff + (int) offset;
+    int count = u16(data, ifd, littleEndian);
+    for (int i = 0; i < count; i++) {
+      int entry = ifd + 2 + i * 12;
+      if (entry + 12 > end) {
+        return NORMAL;
+      }
+      if (u16(data, entry, littleEndian) == ORIENTATION_TAG) {
+        int value = u16(data, entry + 8, littleEndian);
+        return value >= 1 && value <= 8 ? value : NORMAL;
+      }
+    }
+    return NORMAL;
+  }
+
+  private static int u8(byte[] data, int pos) {
+    return data[pos] & 0xFF;
+  }
+
+  private static int u16(byte[] data, int pos, boolean littleEndian) {
+    return littleEndian
+        ? u8(data, pos) | (u8(data, pos + 1) << 8)
+        : (u8(data, pos) << 8) | u8(data, pos + 1);
+  }
+
+  private static long u32(byte[] data, int pos, boolean littleEndian) {
+    long low = u16(data, littleEndian ? pos : pos + 2, littleEndian);
+    long high = u16(data, littleEndian ? pos + 2 : pos, littleEndian);
+    return (high << 16) | low;
+  }
+}
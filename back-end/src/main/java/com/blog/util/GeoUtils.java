@@ -0,0 +1,58 @@
+package com.blog.util;
+
+import com.blog.exception.ValidationException;
+
+/**
+ * Class Name: GeoUtils
+ * Package: com.blog.util
+ * Description: 經緯度檢查與距離計算（WGS84，球面近似）
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class GeoUtils {
+
+  // 地球平均半徑（公里）
+  public static final double EARTH_RADIUS_KM = 6371.0088;
+  // 每一緯度約對應的公里數
+  public static final double KM_PER_DEGREE = 111.32;
+
+  private GeoUtils() {
+  }
+
+  // 兩點間的大圓距離（公里）
+  public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLng = Math.toRadians(lng2 - lng1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+  }
+
+  // 在某緯度上，指定公里數約等於多少經度
+  public static double kmToLongitudeDegrees(double km, double latitude) {
+    double cos = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+    return km / (KM_PER_DEGREE * cos);
+  }
+
+  public static void validateCoordinates(Double latitude, Double longitude) {
+    if (latitude == null && longitude == null) {
+      return;
+    }
+    if (latitude == null || longitude == null) {
+      throw new ValidationException("經緯度需同時提供");
+    }
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+      throw new ValidationException("經緯度超出範圍");
+    }
+  }
+
+  public static void validateBounds(double minLat, double minLng, double maxLat, double maxLng) {
+    validateCoordinates(minLat, minLng);
+    validateCoordinates(maxLat, maxLng);
+    if (minLat > maxLat || minLng > maxLng) {
+      throw new ValidationException("範圍的最小值不可大於最大值");
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.blog.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Class Name: ImageTypeDetector
+ * Package: com.blog.util
+ * Description: 依檔頭的 magic bytes 判斷圖片格式，不採信用戶端送來的 Content-Type
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class ImageTypeDetector {
+
+  // 判斷格式所需的檔頭長度（PNG 簽章為 8 個位元組）
+  public static final int HEADER_LENGTH = 8;
+
+  private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+  private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final byte[] GIF87A = {'G', 'I', 'F', '8', '7', 'a'};
+  private static final byte[] GIF89A = {'G', 'I', 'F', '8', '9', 'a'};
+
+  private ImageTypeDetector() {
+  }
+
+  // 讀取串流開頭判斷格式後回到原位置（串流需支援 mark）；不是 JPG、PNG 或 GIF 時回傳 null
+  public static String detect(InputStream in) throws IOException {
+    if (!in.markSupported()) {
+      throw new IllegalArgumentException("stream must support mark/reset");
+    }
+    in.mark(HEADER_LENGTH);
+    byte[] header = in.readNBytes(HEADER_LENGTH);
+    in.reset();
+    return detect(header, header.length);
+  }
+
+  public static String detect(byte[] header, int length) {
+    if (startsWith(header, length, JPEG)) {
+      return "image/jpeg";
+    }
+    if (startsWith(header, length, PNG)) {
+      return "image/png";
+    }
+    if (startsWith(header, length, GIF87A) || startsWith(header, length, GIF89A)) {
+      return "image/gif";
+    }
+    return null;
+  }
+
+  private static boolean startsWith(byte[] header, int length, byte[] signature) {
+    if (length < signature.length) {
+      return false;
+    }
+    for (int i = 0; i < signature.length; i++) {
+      if (header[i] != signature[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
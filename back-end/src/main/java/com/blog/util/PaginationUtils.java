@@ -0,0 +1,86 @@
+package com.blog.util;
+
+import com.blog.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Class Name: PaginationUtils
+ * Package: com.blog.util
+ * Description: 分頁大小上限與 keyset（游標）分頁的游標編碼
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class PaginationUtils {
+
+  // 伺服器端允許的最大分頁大小
+  public static final int MAX_PAGE_SIZE = 50;
+
+  private static final String CURSOR_VERSION = "v1";
+  private static final String SEPARATOR = "|";
+
+  private PaginationUtils() {
+  }
+
+  // 將分頁大小限制在 1 ~ MAX_PAGE_SIZE
+  public static int clampSize(int size) {
+    return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+  }
+
+  // 將排序鍵與 id 編碼為不透明的游標字串
+  public static String encodeCursor(Object... parts) {
+    StringBuilder builder = new StringBuilder(CURSOR_VERSION);
+    for (Object part : parts) {
+      builder.append(SEPARATOR).append(part);
+    }
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  // 解碼游標，回傳各排序鍵的字串值；空字串或 null 表示第一頁，回傳 null
+  public static String[] decodeCursor(String cursor, int expectedParts) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\" + SEPARATOR, -1);
+      if (parts.length != expectedParts + 1 || !CURSOR_VERSION.equals(parts[0])) {
+        throw new ValidationException("無效的分頁游標");
+      }
+      String[] values = new String[expectedParts];
+      System.arraycopy(parts, 1, values, 0, expectedParts);
+      return values;
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("無效的分頁游標");
+    }
+  }
+
+  public static Long cursorLong(String value) {
+    try {
+      return Long.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw new ValidationException("無效的分頁游標");
+    }
+  }
+
+  public static Integer cursorInteger(String value) {
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw new ValidationException("無效的分頁游標");
+    }
+  }
+
+  public static LocalDateTime cursorDateTime(String value) {
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException e) {
+      throw new ValidationException("無效的分頁游標");
+    }
+  }
+}
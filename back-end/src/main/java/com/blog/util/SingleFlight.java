@@ -0,0 +1,114 @@
+package com.blog.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Class Name: SingleFlight
+ * Package: com.blog.util
+ * Description: 同一個 key 的並行載入只執行一次，其餘請求等待並共用結果（含逾時、例外傳遞與合併次數統計）；
+ *              可帶資料版本號，版本已更新的請求不會共用更新前開始的載入
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class SingleFlight<K, V> {
+
+  private final long timeoutMillis;
+  private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder superseded = new LongAdder();
+
+  // 一次進行中的載入與它開始時的資料版本
+  private record Flight<V>(long version, CompletableFuture<V> future) {
+  }
+
+  public SingleFlight(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  // 第一個請求在自己的執行緒執行 loader；載入期間的相同 key 請求等待同一個結果，
+  // loader 拋出的例外也原樣拋給所有等待者
+  public V load(K key, Supplier<V> loader) {
+    return load(key, 0L, loader);
+  }
+
+  // version 為呼叫端在載入前讀到的資料版本（寫入後遞增）。進行中的載入版本較舊時不共用，
+  // 改由這個請求重新載入，之後到達的請求改等新的載入，避免寫入提交後仍拿到寫入前的結果
+  public V load(K key, long version, Supplier<V> loader) {
+    Flight<V> flight = new Flight<>(version, new CompletableFuture<>());
+    Flight<V> current = inFlight.compute(key, (k, existing) -> {
+      if (existing == null) {
+        return flight;
+      }
+      if (existing.version() < version) {
+        superseded.increment();
+        return flight;
+      }
+      return existing;
+    });
+    if (current != flight) {
+      coalesced.increment();
+      return await(current.future());
+    }
+
+    loads.increment();
+    try {
+      V value = loader.get();
+      flight.future().complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      failures.increment();
+      flight.future().completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("loads", loads.sum());
+    stats.put("coalesced", coalesced.sum());
+    stats.put("failures", failures.sum());
+    stats.put("timeouts", timeouts.sum());
+    stats.put("superseded", superseded.sum());
+    stats.put("inFlight", inFlight.size());
+    return stats;
+  }
+
+  private V await(CompletableFuture<V> future) {
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      timeouts.increment();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "資料載入逾時，請稍後再試");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "資料載入被中斷");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.blog.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Class Name: SizeLimitedInputStream
+ * Package: com.blog.util
+ * Description: 讀取量超過上限時立即丟出例外的串流，用來在上傳途中中止過大的檔案
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class SizeLimitedInputStream extends FilterInputStream {
+
+  private final long maxBytes;
+  private long count;
+  private long mark;
+
+  public SizeLimitedInputStream(InputStream in, long maxBytes) {
+    super(in);
+    this.maxBytes = maxBytes;
+  }
+
+  // 超過大小上限時丟出，與一般的讀取錯誤區分
+  public static final class LimitExceededException extends IOException {
+    public LimitExceededException(long maxBytes) {
+      super("content exceeds " + maxBytes + " bytes");
+    }
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      add(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = super.read(b, off, len);
+    if (n > 0) {
+      add(n);
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    add(skipped);
+    return skipped;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+    super.mark(readLimit);
+    mark = count;
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    super.reset();
+    count = mark;
+  }
+
+  private void add(long n) throws LimitExceededException {
+    count += n;
+    if (count > maxBytes) {
+      throw new LimitExceededException(maxBytes);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.blog.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class Name: TextAnalyzer
+ * Package: com.blog.util
+ * Description: 全文檢索用的斷詞：中日韓文字切成單字與二元組（bigram），拉丁字母與數字依連續字元切詞
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class TextAnalyzer {
+
+  private TextAnalyzer() {
+  }
+
+  // 建立索引用：中日韓文字同時輸出單字與二元組，讓單字查詢也能命中
+  public static List<String> analyzeForIndex(String text) {
+    return analyze(text, true);
+  }
+
+  // 查詢用：中日韓文字只輸出二元組（單一字元時輸出單字），所有詞都需命中才算符合
+  public static List<String> analyzeForQuery(String text) {
+    return analyze(text, false);
+  }
+
+  // 拉丁詞（可做前綴比對）與中日韓詞的區分
+  public static boolean isCjkTerm(String term) {
+    return !term.isEmpty() && isCjk(term.codePointAt(0));
+  }
+
+  private static List<String> analyze(String text, boolean forIndex) {
+    List<String> terms = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return terms;
+    }
+    // 全形轉半形並統一小寫
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+
+    StringBuilder latin = new StringBuilder();
+    List<String> cjkRun = new ArrayList<>();
+    int i = 0;
+    while (i < normalized.length()) {
+      int cp = normalized.codePointAt(i);
+      i += Character.charCount(cp);
+      if (isCjk(cp)) {
+        flushLatin(latin, terms);
+        cjkRun.add(new String(Character.toChars(cp)));
+      } else if (Character.isLetterOrDigit(cp)) {
+        flushCjk(cjkRun, terms, forIndex);
+        latin.appendCodePoint(cp);
+      } else {
+        flushLatin(latin, terms);
+        flushCjk(cjkRun, terms, forIndex);
+      }
+    }
+    flushLatin(latin, terms);
+    flushCjk(cjkRun, terms, forIndex);
+    return terms;
+  }
+
+  private static void flushLatin(StringBuilder latin, List<String> terms) {
+    if (latin.length() > 0) {
+      terms.add(latin.toString());
+      latin.setLength(0);
+    }
+  }
+
+  private static void flushCjk(List<String> run, List<String> terms, boolean forIndex) {
+    if (run.isEmpty()) {
+      return;
+    }
+    if (forIndex || run.size() == 1) {
+      terms.addAll(run);
+    }
+    for (int j = 0; j + 1 < run.size(); j++) {
+      terms.add(run.get(j) + run.get(j + 1));
+    }
+    run.clear();
+  }
+
+  private static boolean isCjk(int codePoint) {
+    Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+    return script == Character.UnicodeScript.HAN
+        || script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA
+        || script == Character.UnicodeScript.HANGUL;
+  }
+}
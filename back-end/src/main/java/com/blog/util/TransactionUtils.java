@@ -0,0 +1,32 @@
+package com.blog.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Class Name: TransactionUtils
+ * Package: com.blog.util
+ * Description: 交易相關的小工具：把記憶體索引等副作用延後到交易提交之後
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+public final class TransactionUtils {
+
+  private TransactionUtils() {
+  }
+
+  // 在交易中時於提交成功後執行（回滾則不執行），不在交易中時立即執行
+  public static void runAfterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+}
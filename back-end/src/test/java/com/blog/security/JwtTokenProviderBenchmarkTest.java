@@ -0,0 +1,96 @@
+package com.blog.security;
+
+import com.blog.model.Role;
+import com.blog.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Class Name: JwtTokenProviderBenchmarkTest
+ * Package: com.blog.security
+ * Description: 比較每個請求驗證 JWT 的成本：舊版每個請求建立三次解析器並驗簽三次，
+ *              新版 parseClaims 在快取未命中時驗簽一次、命中時只計算 SHA-256 摘要與查表。
+ *              迭代次數可用 -Djwt.benchmark.iterations 調整，結果輸出到標準輸出
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+class JwtTokenProviderBenchmarkTest {
+
+    private static final String SECRET = "restaurant-map-secret-key-2024-very-secure-and-long";
+    private static final int ITERATIONS = Integer.getInteger("jwt.benchmark.iterations", 2_000);
+    private static final int WARMUP = ITERATIONS / 2;
+
+    private JwtTokenProvider provider;
+    private SecretKey key;
+
+    @BeforeEach
+    void setUp() {
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 3_600_000L);
+        // 未命中的量測每次使用不同的 token，快取要放得下全部
+        ReflectionTestUtils.setField(provider, "claimsCacheMaxEntries", (WARMUP + ITERATIONS) * 2);
+        provider.init();
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parseClaimsIsCheaperThanTheOldThreeParsePath() {
+        String token = provider.generateToken(user(1L));
+        String[] missTokens = new String[WARMUP + ITERATIONS];
+        for (int i = 0; i < missTokens.length; i++) {
+            missTokens[i] = provider.generateToken(user(i + 2L));
+        }
+
+        // 舊版：validateToken、getUsernameFromToken、getPrincipalFromToken 各自建立解析器並驗簽
+        double oldPath = nanosPerOp(i -> {
+            for (int parse = 0; parse < 3; parse++) {
+                Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+                assertThat(claims.getSubject()).isNotNull();
+            }
+        });
+        // 新版未命中：摘要 + 共用解析器驗簽一次 + 寫入快取
+        double miss = nanosPerOp(i -> assertThat(provider.parseClaims(missTokens[i])).isNotNull());
+        // 新版命中：摘要 + 查表，不驗簽
+        provider.parseClaims(token);
+        double hit = nanosPerOp(i -> assertThat(provider.parseClaims(token)).isNotNull());
+
+        System.out.printf("JWT per-request cost (%d iterations): old three-parse path %.0f ns, "
+                + "parseClaims miss %.0f ns, parseClaims hit %.0f ns%n", ITERATIONS, oldPath, miss, hit);
+
+        // 只與舊版比較（差距為數量級）；命中與未命中相差較小，一次 GC 停頓就可能顛倒，只輸出不檢查
+        assertThat(miss).isLessThan(oldPath);
+        assertThat(hit).isLessThan(oldPath);
+    }
+
+    private static double nanosPerOp(IntConsumer operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.accept(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(WARMUP + i);
+        }
+        return (double) (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setRole(Role.REVIEWER);
+        user.setTokenVersion(0);
+        return user;
+    }
+}
@@ -0,0 +1,70 @@
+package com.blog.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static com.blog.security.RouteAccess.AUTHENTICATED;
+import static com.blog.security.RouteAccess.PUBLIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Class Name: RouteTableTest
+ * Package: com.blog.security
+ * Description: 路由 trie 的比對優先順序：字面 > 數字參數 > * > **，同一節點上指定方法 > 不限方法，比對失敗時回溯
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+class RouteTableTest {
+
+    private final RouteTable table = RouteTable.builder()
+            .route(null, "/a/**", PUBLIC)
+            .route(null, "/a/*/x", PUBLIC)
+            .route(null, "/a/{id}/x", AUTHENTICATED)
+            .route("GET", "/a/{id}/x", AUTHENTICATED, "REVIEWER")
+            .route(null, "/a/lit/x", AUTHENTICATED, "ADMIN")
+            .route("POST", "/b/{id}", AUTHENTICATED, "REVIEWER")
+            .otherwise(AUTHENTICATED)
+            .build();
+
+    @ParameterizedTest(name = "{0} {1} -> {2}")
+    @CsvSource({
+            // 字面片段優先於數字參數
+            "GET,    /a/lit/x,  /a/lit/x",
+            // 指定方法優先於不限方法
+            "GET,    /a/5/x,    /a/{id}/x",
+            "DELETE, /a/5/x,    /a/{id}/x",
+            // 非數字不符合 {id}，改由 * 接手
+            "GET,    /a/abc/x,  /a/*/x",
+            // 更深的路徑沒有具體規則時回溯到 **
+            "GET,    /a/5/y,    /a/**",
+            "GET,    /a,        /a/**",
+            "GET,    /a/lit/x/z, /a/**",
+            // 多餘的斜線視為同一個片段分隔
+            "GET,    //a//5//x/, /a/{id}/x",
+            // 只限 POST 的規則不會套用到其他方法
+            "POST,   /b/5,      /b/{id}",
+            "GET,    /b/5,      /**",
+    })
+    void picksTheMostSpecificRoute(String method, String path, String pattern) {
+        assertThat(table.classify(method, path).pattern()).isEqualTo(pattern);
+    }
+
+    @Test
+    void methodSpecificRouteKeepsItsRoles() {
+        assertThat(table.classify("GET", "/a/5/x").roles()).containsExactly("REVIEWER");
+        assertThat(table.classify("PUT", "/a/5/x").roles()).isEmpty();
+    }
+
+    @Test
+    void rejectsDuplicateAndMisplacedWildcardRoutes() {
+        assertThatThrownBy(() -> RouteTable.builder()
+                .route("GET", "/a/{id}", PUBLIC)
+                .route("GET", "/a/{other}", PUBLIC))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RouteTable.builder().route(null, "/a/**/b", PUBLIC))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
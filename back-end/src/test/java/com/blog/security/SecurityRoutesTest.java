@@ -0,0 +1,124 @@
+package com.blog.security;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.stream.Stream;
+
+import static com.blog.security.RouteAccess.AUTHENTICATED;
+import static com.blog.security.RouteAccess.IMAGE_BYPASS;
+import static com.blog.security.RouteAccess.PUBLIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Class Name: SecurityRoutesTest
+ * Package: com.blog.security
+ * Description: 路由表的對照測試：涵蓋原本 SecurityConfig 的每一條 matcher、刻意調整的行為，以及規則優先順序容易出錯的路徑
+ * author:
+ * Create: 2026/10/17
+ * Version: 1.0
+ */
+class SecurityRoutesTest {
+
+    private static final String FALLBACK = "/**";
+
+    private final SecurityRoutes routes = new SecurityRoutes();
+
+    // 方法、路徑、預期分類、預期命中的規則、匿名 / REVIEWER / ADMIN 是否可存取
+    static Stream<Arguments> routeTable() {
+        return Stream.of(
+                // 公開端點
+                arguments("POST", "/api/auth/refresh", PUBLIC, "/api/auth/**", true, true, true),
+                arguments("POST", "/api/users/login", PUBLIC, "/api/users/login", true, true, true),
+                arguments("POST", "/api/users/register", PUBLIC, "/api/users/register", true, true, true),
+                arguments("GET", "/api/restaurants", PUBLIC, "/api/restaurants/**", true, true, true),
+                arguments("GET", "/api/restaurants/5", PUBLIC, "/api/restaurants/**", true, true, true),
+                arguments("GET", "/api/restaurants/popular", PUBLIC, "/api/restaurants/**", true, true, true),
+                arguments("GET", "/api/reviews/restaurant/5/page", PUBLIC, "/api/reviews/restaurant/**",
+                        true, true, true),
+
+                // 圖片 API 不經過認證，統計端點例外
+                arguments("GET", "/api/images/abc.jpg", IMAGE_BYPASS, "/api/images/**", true, true, true),
+                arguments("PUT", "/api/images/abc.jpg", IMAGE_BYPASS, "/api/images/**", true, true, true),
+                arguments("GET", "/api/images/cache-stats", AUTHENTICATED, "/api/images/cache-stats",
+                        false, false, true),
+                arguments("GET", "/api/images/variant-stats", AUTHENTICATED, "/api/images/variant-stats",
+                        false, false, true),
+
+                // 使用者資料
+                arguments("GET", "/api/users/5", AUTHENTICATED, "/api/users/{userId}", false, true, false),
+                arguments("GET", "/api/users/5/", AUTHENTICATED, "/api/users/{userId}", false, true, false),
+                arguments("GET", "/api/users/5/favorites", AUTHENTICATED, "/api/users/{userId}/favorites",
+                        false, true, false),
+                arguments("GET", "/api/users/5/reviews", AUTHENTICATED, "/api/users/{userId}/reviews",
+                        false, true, false),
+                arguments("GET", "/api/users/5/restaurants", AUTHENTICATED, "/api/users/{userId}/restaurants",
+                        false, true, false),
+                // 刻意調整：/me 只需登入（原本被 {userId} 吃掉而要求 REVIEWER），{userId} 只接受數字
+                arguments("GET", "/api/users/me", AUTHENTICATED, FALLBACK, false, true, true),
+
+                // 評論：GET /api/reviews/restaurant/{id} 命中不限方法的登入規則，而不是 ** 的公開規則
+                arguments("GET", "/api/reviews/restaurant/5", AUTHENTICATED,
+                        "/api/reviews/restaurant/{restaurantId}", false, true, true),
+                arguments("POST", "/api/reviews/restaurant/5", AUTHENTICATED,
+                        "/api/reviews/restaurant/{restaurantId}", false, true, false),
+                arguments("PUT", "/api/reviews/7", AUTHENTICATED, "/api/reviews/{reviewId}", false, true, false),
+                arguments("DELETE", "/api/reviews/7", AUTHENTICATED, "/api/reviews/{reviewId}", false, true, true),
+                arguments("POST", "/api/reviews/7/like", AUTHENTICATED, "/api/reviews/{reviewId}/like",
+                        false, true, false),
+                arguments("DELETE", "/api/reviews/7/like", AUTHENTICATED, "/api/reviews/{reviewId}/like",
+                        false, true, false),
+                arguments("GET", "/api/reviews/7/like", AUTHENTICATED, "/api/reviews/{reviewId}/like",
+                        false, true, true),
+
+                // 餐廳寫入與收藏
+                arguments("POST", "/api/restaurants", AUTHENTICATED, "/api/restaurants", false, true, false),
+                arguments("PUT", "/api/restaurants/5", AUTHENTICATED, "/api/restaurants/{id}", false, true, false),
+                arguments("DELETE", "/api/restaurants/5", AUTHENTICATED, "/api/restaurants/{id}", false, true, true),
+                arguments("PUT", "/api/restaurants/abc", AUTHENTICATED, FALLBACK, false, true, true),
+                arguments("POST", "/api/restaurants/5/favorite", AUTHENTICATED, "/api/restaurants/{id}/favorite",
+                        false, true, false),
+                arguments("DELETE", "/api/restaurants/5/favorite", AUTHENTICATED, "/api/restaurants/{id}/favorite",
+                        false, true, false),
+                arguments("GET", "/api/restaurants/5/favorite", AUTHENTICATED, "/api/restaurants/{id}/favorite",
+                        false, true, true),
+                // GET /api/restaurants/favorites 命中字面規則，而不是 GET /api/restaurants/** 的公開規則
+                arguments("GET", "/api/restaurants/favorites", AUTHENTICATED, "/api/restaurants/favorites",
+                        false, true, true),
+
+                // 刻意調整：/api/debug/** 不再公開，其餘未列出的請求都需要登入
+                arguments("GET", "/api/debug/info", AUTHENTICATED, FALLBACK, false, true, true),
+                arguments("GET", "/api/unknown", AUTHENTICATED, FALLBACK, false, true, true));
+    }
+
+    @ParameterizedTest(name = "{0} {1} -> {2} {3}")
+    @MethodSource("routeTable")
+    void classifiesAndAuthorizes(String method, String path, RouteAccess access, String pattern,
+                                 boolean anonymousAllowed, boolean reviewerAllowed, boolean adminAllowed) {
+        RouteTable.Route route = routes.classify(new MockHttpServletRequest(method, path));
+
+        assertThat(route.access()).isEqualTo(access);
+        assertThat(route.pattern()).isEqualTo(pattern);
+        assertThat(routes.isAllowed(route, null)).isEqualTo(anonymousAllowed);
+        assertThat(routes.isAllowed(route, anonymous())).isEqualTo(anonymousAllowed);
+        assertThat(routes.isAllowed(route, user("ROLE_REVIEWER"))).isEqualTo(reviewerAllowed);
+        assertThat(routes.isAllowed(route, user("ROLE_ADMIN"))).isEqualTo(adminAllowed);
+    }
+
+    private static Authentication anonymous() {
+        return new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+    }
+
+    private static Authentication user(String authority) {
+        return UsernamePasswordAuthenticationToken.authenticated("user", null,
+                AuthorityUtils.createAuthorityList(authority));
+    }
+}
@@ -25,11 +25,7 @@ api.interceptors.request.use(
       return config;
     }
     
-    // 如果是公開的評論列表請求，不需要添加 token
-    if (config.url.includes('/reviews/restaurant/') && config.method === 'get') {
-      return config;
-    }
-    
+    // 公開的評論列表請求也帶上 token（若有），後端據此回傳當前用戶的按讚狀態
     // 其他所有請求都需要添加 token
     if (token) {
       const tokenValue = token.startsWith('Bearer ') ? token : `Bearer ${token}`;
@@ -150,6 +150,18 @@ export function getRestaurantImageUrl(restaurant, baseUrl = getBaseUrl(), isRevi
   return defaultRestaurantImage;
 }
 
+/**
+ * 列表卡片用的縮圖，尚未產生縮圖時使用原圖
+ * @param {object} restaurant - 餐廳對象
+ * @returns {string} 處理後的圖片URL
+ */
+export function getRestaurantThumbnailUrl(restaurant) {
+  if (restaurant && restaurant.imageThumbnailUrl) {
+    return getImageUrl(restaurant.imageThumbnailUrl);
+  }
+  return getRestaurantImageUrl(restaurant);
+}
+
 /**
  * 統一的圖片錯誤處理函數
  * @param {Event} event - 圖片錯誤事件